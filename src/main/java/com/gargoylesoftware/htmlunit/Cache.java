@@ -16,9 +16,9 @@ package com.gargoylesoftware.htmlunit;
 
 import java.io.Serializable;
 import java.net.URL;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -34,6 +34,10 @@ import com.gargoylesoftware.htmlunit.util.UrlUtils;
  * compiled JavaScript files avoids unnecessary web requests and additional compilation overhead, while
  * caching parsed CSS snippets avoids very expensive CSS parsing.</p>
  *
+ * <p>The entries are held in access order, so evicting the least recently used entry is a constant time
+ * operation. Besides the maximum number of entries, the cache can be limited by an (estimated) size in bytes,
+ * see {@link #setMaxByteSize(long)}.</p>
+ *
  * @author Marc Guillemot
  * @author Daniel Gredler
  * @author Ahmed Ashour
@@ -45,6 +49,19 @@ public class Cache implements Serializable {
     /** The maximum size of the cache. */
     private int maxSize_ = 40;
 
+    /** The maximum (estimated) size of the cache in bytes; zero means no limit. */
+    private long maxByteSize_;
+
+    /**
+     * The (estimated) size in bytes of all entries; guarded by {@link #entries_}.
+     * Only tracked if {@link #maxByteSize_} is set.
+     */
+    private long byteSize_;
+
+    private long hitCount_;
+    private long missCount_;
+    private long evictionCount_;
+
     private static final Pattern DATE_HEADER_PATTERN = Pattern.compile("-?\\d+");
     private static final long DELAY = 10 * org.apache.commons.lang3.time.DateUtils.MILLIS_PER_MINUTE;
     /**
@@ -53,62 +70,27 @@ public class Cache implements Serializable {
      * {@link java.net.URL#hashCode()} method is synchronized, and b) the {@link java.net.URL#hashCode()}
      * method triggers DNS lookups of the URL hostnames' IPs. As of this writing, the HtmlUnit unit tests
      * run ~20% faster whey keying on strings rather than on {@link java.net.URL} instances.
+     *
+     * <p>The map is access ordered (the eldest entry is the least recently used one); all access
+     * has to be synchronized on the map itself.</p>
      */
-    private final Map<String, Entry> entries_ = Collections.synchronizedMap(new HashMap<String, Entry>(maxSize_));
+    private final Map<String, Entry> entries_ = new LinkedHashMap<>(16, 0.75f, true);
 
     /**
      * A cache entry.
      */
-    private static class Entry implements Comparable<Entry>, Serializable {
+    private static class Entry implements Serializable {
         private final String key_;
-        private WebResponse response_;
-        private Object value_;
-        private long lastAccess_;
-        private long createdAt_;
+        private final WebResponse response_;
+        private final Object value_;
+        private final long createdAt_;
+        private long size_;
 
         Entry(final String key, final WebResponse response, final Object value) {
             key_ = key;
             response_ = response;
             value_ = value;
             createdAt_ = System.currentTimeMillis();
-            lastAccess_ = createdAt_;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public int compareTo(final Entry other) {
-            if (lastAccess_ < other.lastAccess_) {
-                return -1;
-            }
-            if (lastAccess_ == other.lastAccess_) {
-                return 0;
-            }
-            return 1;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public boolean equals(final Object obj) {
-            return obj instanceof Entry && lastAccess_ == ((Entry) obj).lastAccess_;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public int hashCode() {
-            return ((Long) lastAccess_).hashCode();
-        }
-
-        /**
-         * Updates the last access date.
-         */
-        public void touch() {
-            lastAccess_ = System.currentTimeMillis();
         }
     }
 
@@ -129,9 +111,7 @@ public class Cache implements Serializable {
                 return false;
             }
 
-            final Entry entry = new Entry(UrlUtils.normalize(url), response, toCache);
-            entries_.put(entry.key_, entry);
-            deleteOverflow();
+            put(new Entry(UrlUtils.normalize(url), response, toCache));
             return true;
         }
 
@@ -150,19 +130,62 @@ public class Cache implements Serializable {
      * @param styleSheet the parsed version of <tt>css</tt>
      */
     public void cache(final String css, final CSSStyleSheetImpl styleSheet) {
-        final Entry entry = new Entry(css, null, styleSheet);
-        entries_.put(entry.key_, entry);
+        put(new Entry(css, null, styleSheet));
+    }
+
+    private void put(final Entry entry) {
+        synchronized (entries_) {
+            if (maxByteSize_ > 0) {
+                entry.size_ = estimateSize(entry.key_, entry.response_, entry.value_);
+            }
+            final Entry replaced = entries_.put(entry.key_, entry);
+            if (replaced != null) {
+                byteSize_ -= replaced.size_;
+            }
+            byteSize_ += entry.size_;
+        }
         deleteOverflow();
     }
 
     /**
-     * Truncates the cache to the maximal number of entries.
+     * Estimates the number of bytes an entry occupies; used to enforce the {@link #getMaxByteSize()} limit.
+     * The default implementation takes the length of the downloaded content, doubled if there is also a
+     * derived object (like a compiled script) kept, and twice the number of chars of the CSS snippet plus
+     * the same amount for the parsed {@link CSSStyleSheetImpl}.
+     *
+     * @param key the cache key (the normalized url or the CSS snippet)
+     * @param response the cached response, may be {@code null}
+     * @param value the cached object, may be {@code null}
+     * @return the estimated size in bytes
+     */
+    protected long estimateSize(final String key, final WebResponse response, final Object value) {
+        long size = 0;
+        if (response != null) {
+            size = response.getContentLength();
+            if (value != null && value != response) {
+                size += size;
+            }
+        }
+        if (value instanceof CSSStyleSheetImpl) {
+            // the css snippet (2 bytes per char) and roughly the same amount for the parsed rules
+            size += 4L * key.length();
+        }
+        return size;
+    }
+
+    /**
+     * Truncates the cache to the maximal number of entries and the maximal byte size.
+     * The least recently used entries are removed first.
      */
     protected void deleteOverflow() {
         synchronized (entries_) {
-            while (entries_.size() > maxSize_) {
-                final Entry oldestEntry = Collections.min(entries_.values());
-                entries_.remove(oldestEntry.key_);
+            final Iterator<Entry> iter = entries_.values().iterator();
+            while (iter.hasNext()
+                    && (entries_.size() > maxSize_ || (maxByteSize_ > 0 && byteSize_ > maxByteSize_))) {
+                final Entry oldestEntry = iter.next();
+                iter.remove();
+                byteSize_ -= oldestEntry.size_;
+                evictionCount_++;
                 if (oldestEntry.response_ != null) {
                     oldestEntry.response_.cleanUp();
                 }
@@ -260,6 +283,30 @@ public class Cache implements Serializable {
         return cachedEntry.response_;
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns whether there is an entry for the specified request. Unlike {@link #getCachedResponse(WebRequest)}
+     * this does not check the freshness and changes neither the statistics nor the access order.
+     *
+     * @param request the request
+     * @return whether there is an entry for the request
+     */
+    public boolean containsEntry(final WebRequest request) {
+        if (HttpMethod.GET != request.getHttpMethod()) {
+            return false;
+        }
+
+        final URL url = request.getUrl();
+        if (url == null) {
+            return false;
+        }
+        final String key = UrlUtils.normalize(url);
+        synchronized (entries_) {
+            return entries_.containsKey(key);
+        }
+    }
+
     /**
      * Returns the cached object corresponding to the specified request. If there is
      * no corresponding cached object, this method returns {@code null}.
@@ -287,19 +334,30 @@ public class Cache implements Serializable {
         if (url == null) {
             return null;
         }
-        final Entry cachedEntry = entries_.get(UrlUtils.normalize(url));
-        if (cachedEntry == null) {
-            return null;
+        final String key = UrlUtils.normalize(url);
+        final Entry cachedEntry;
+        synchronized (entries_) {
+            // get() moves the entry to the tail of the access order
+            cachedEntry = entries_.get(key);
+            if (cachedEntry == null) {
+                missCount_++;
+                return null;
+            }
         }
 
         // check if object still fresh
         if (checkFreshness(cachedEntry.response_, cachedEntry.createdAt_)) {
             synchronized (entries_) {
-                cachedEntry.touch();
+                hitCount_++;
             }
             return cachedEntry;
         }
-        entries_.remove(UrlUtils.normalize(url));
+        synchronized (entries_) {
+            missCount_++;
+            if (entries_.remove(key, cachedEntry)) {
+                byteSize_ -= cachedEntry.size_;
+            }
+        }
         return null;
     }
 
@@ -348,14 +406,15 @@ public class Cache implements Serializable {
      * @return the cached stylesheet corresponding to the specified CSS snippet
      */
     public CSSStyleSheetImpl getCachedStyleSheet(final String css) {
-        final Entry cachedEntry = entries_.get(css);
-        if (cachedEntry == null) {
-            return null;
-        }
         synchronized (entries_) {
-            cachedEntry.touch();
+            final Entry cachedEntry = entries_.get(css);
+            if (cachedEntry == null) {
+                missCount_++;
+                return null;
+            }
+            hitCount_++;
+            return (CSSStyleSheetImpl) cachedEntry.value_;
         }
-        return (CSSStyleSheetImpl) cachedEntry.value_;
     }
 
     /**
@@ -382,13 +441,97 @@ public class Cache implements Serializable {
         deleteOverflow();
     }
 
+    /**
+     * Returns the cache's maximum size in bytes (estimated, see {@link #estimateSize(String, WebResponse, Object)}).
+     * The default is <tt>0</tt>, meaning that only the number of entries is limited.
+     *
+     * @return the cache's maximum size in bytes
+     */
+    public long getMaxByteSize() {
+        return maxByteSize_;
+    }
+
+    /**
+     * Sets the cache's maximum size in bytes (estimated, see {@link #estimateSize(String, WebResponse, Object)}).
+     * Use <tt>0</tt> to limit only the number of entries.
+     *
+     * @param maxByteSize the cache's maximum size in bytes (must be &gt;= 0)
+     */
+    public void setMaxByteSize(final long maxByteSize) {
+        if (maxByteSize < 0) {
+            throw new IllegalArgumentException("Illegal value for maxByteSize: " + maxByteSize);
+        }
+        synchronized (entries_) {
+            maxByteSize_ = maxByteSize;
+            byteSize_ = 0;
+            for (final Entry entry : entries_.values()) {
+                if (maxByteSize_ > 0) {
+                    entry.size_ = estimateSize(entry.key_, entry.response_, entry.value_);
+                }
+                else {
+                    entry.size_ = 0;
+                }
+                byteSize_ += entry.size_;
+            }
+        }
+        deleteOverflow();
+    }
+
     /**
      * Returns the number of entries in the cache.
      *
      * @return the number of entries in the cache
      */
     public int getSize() {
-        return entries_.size();
+        synchronized (entries_) {
+            return entries_.size();
+        }
+    }
+
+    /**
+     * Returns the (estimated) size in bytes of all entries in the cache.
+     * The size is only tracked while a {@link #setMaxByteSize(long) maximum byte size} is set.
+     *
+     * @return the size in bytes of all entries in the cache
+     */
+    public long getByteSize() {
+        synchronized (entries_) {
+            return byteSize_;
+        }
+    }
+
+    /**
+     * Returns the number of lookups that were answered from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+        synchronized (entries_) {
+            return hitCount_;
+        }
+    }
+
+    /**
+     * Returns the number of lookups that were not answered from the cache
+     * (including entries that were found but are no longer fresh).
+     *
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+        synchronized (entries_) {
+            return missCount_;
+        }
+    }
+
+    /**
+     * Returns the number of entries removed because the cache exceeded its limits.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        synchronized (entries_) {
+            return evictionCount_;
+        }
     }
 
     /**
@@ -402,6 +545,7 @@ public class Cache implements Serializable {
                 }
             }
             entries_.clear();
+            byteSize_ = 0;
         }
     }
 }
@@ -17,14 +17,21 @@ package com.gargoylesoftware.htmlunit;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.cookie.CookieOrigin;
+import org.apache.http.cookie.CookieSpec;
 
 import com.gargoylesoftware.htmlunit.httpclient.HtmlUnitBrowserCompatCookieSpec;
 import com.gargoylesoftware.htmlunit.util.Cookie;
@@ -44,11 +51,123 @@ import com.gargoylesoftware.htmlunit.util.UrlUtils;
 public class CookieManager implements Serializable {
 
     /** Whether or not cookies are enabled. */
-    private boolean cookiesEnabled_;
+    private volatile boolean cookiesEnabled_;
 
     /** The cookies added to this cookie manager. */
     private final Set<Cookie> cookies_ = new LinkedHashSet<>();
 
+    /**
+     * The lookup structures for the current cookies; reset to {@code null} by every modification
+     * and rebuilt on the next read. Reading an up to date index requires no lock.
+     */
+    private transient volatile CookieIndex index_;
+
+    /**
+     * An immutable snapshot of the cookies, indexed by domain.
+     */
+    private static final class CookieIndex {
+        /** The number of origins per cookie spec for which the matching cookies are remembered. */
+        private static final int MAX_CACHED_ORIGINS = 256;
+
+        private final Set<Cookie> all_;
+        /** The cookies by domain (lower case, without leading dot); with their position in {@link #all_}. */
+        private final Map<String, List<IndexedCookie>> byDomain_ = new HashMap<>();
+        /** The earliest expiration date of all cookies, {@link Long#MAX_VALUE} if none expires. */
+        private final long nextExpiry_;
+        private final Map<CookieSpec, Map<String, Set<Cookie>>> matches_ = new ConcurrentHashMap<>();
+
+        CookieIndex(final Set<Cookie> cookies) {
+            all_ = Collections.unmodifiableSet(new LinkedHashSet<>(cookies));
+
+            long nextExpiry = Long.MAX_VALUE;
+            int position = 0;
+            for (final Cookie cookie : all_) {
+                final Date expires = cookie.getExpires();
+                if (expires != null) {
+                    nextExpiry = Math.min(nextExpiry, expires.getTime());
+                }
+
+                String domain = cookie.getDomain();
+                if (domain != null) {
+                    domain = domain.toLowerCase(Locale.ROOT);
+                    if (domain.startsWith(".")) {
+                        domain = domain.substring(1);
+                    }
+                    byDomain_.computeIfAbsent(domain, k -> new ArrayList<>())
+                        .add(new IndexedCookie(position, cookie));
+                }
+                position++;
+            }
+            nextExpiry_ = nextExpiry;
+        }
+
+        Set<Cookie> getMatches(final CookieOrigin origin, final CookieSpec cookieSpec) {
+            if (matches_.size() > 8) {
+                matches_.clear();
+            }
+            final Map<String, Set<Cookie>> matches
+                = matches_.computeIfAbsent(cookieSpec, k -> new ConcurrentHashMap<>());
+
+            final String key = origin.getHost() + ':' + origin.getPort() + origin.getPath()
+                    + (origin.isSecure() ? " secure" : "");
+            Set<Cookie> result = matches.get(key);
+            if (result == null) {
+                result = match(origin, cookieSpec);
+                if (matches.size() >= MAX_CACHED_ORIGINS) {
+                    matches.clear();
+                }
+                matches.put(key, result);
+            }
+            return result;
+        }
+
+        private Set<Cookie> match(final CookieOrigin origin, final CookieSpec cookieSpec) {
+            // only the host itself and its parent domains can match
+            final List<IndexedCookie> candidates = new ArrayList<>();
+            String domain = origin.getHost();
+            int buckets = 0;
+            while (true) {
+                final List<IndexedCookie> bucket = byDomain_.get(domain);
+                if (bucket != null) {
+                    candidates.addAll(bucket);
+                    buckets++;
+                }
+                final int dot = domain.indexOf('.');
+                if (dot == -1) {
+                    break;
+                }
+                domain = domain.substring(dot + 1);
+            }
+            if (candidates.isEmpty()) {
+                return Collections.emptySet();
+            }
+            if (buckets > 1) {
+                candidates.sort((c1, c2) -> Integer.compare(c1.position_, c2.position_));
+            }
+
+            final Set<Cookie> result = new LinkedHashSet<>();
+            for (final IndexedCookie candidate : candidates) {
+                if (cookieSpec.match(candidate.cookie_.toHttpClient(), origin)) {
+                    result.add(candidate.cookie_);
+                }
+            }
+            return Collections.unmodifiableSet(result);
+        }
+    }
+
+    /**
+     * A cookie and its position in the list of all cookies.
+     */
+    private static final class IndexedCookie {
+        private final int position_;
+        private final Cookie cookie_;
+
+        IndexedCookie(final int position, final Cookie cookie) {
+            position_ = position;
+            cookie_ = cookie;
+        }
+    }
+
     /**
      * Creates a new instance.
      */
@@ -62,13 +181,14 @@ public class CookieManager implements Serializable {
      */
     public synchronized void setCookiesEnabled(final boolean enabled) {
         cookiesEnabled_ = enabled;
+        index_ = null;
     }
 
     /**
      * Returns {@code true} if cookies are enabled. Cookies are enabled by default.
      * @return {@code true} if cookies are enabled, {@code false} otherwise
      */
-    public synchronized boolean isCookiesEnabled() {
+    public boolean isCookiesEnabled() {
         return cookiesEnabled_;
     }
 
@@ -77,14 +197,51 @@ public class CookieManager implements Serializable {
      * If disabled, this returns an empty set.
      * @return the currently configured cookies, in an unmodifiable set
      */
-    public synchronized Set<Cookie> getCookies() {
+    public Set<Cookie> getCookies() {
+        if (!isCookiesEnabled()) {
+            return Collections.<Cookie>emptySet();
+        }
+
+        return getIndex().all_;
+    }
+
+    /**
+     * Returns the currently configured cookies matching the given origin, in an unmodifiable set.
+     * Expired cookies are cleared first. If disabled, this returns an empty set.
+     *
+     * <p>Only the cookies of the host and its parent domains are checked; the result is remembered
+     * (per cookie spec instance) until the cookies change.</p>
+     *
+     * @param origin the origin to match
+     * @param cookieSpec the spec to use for matching
+     * @return the matching cookies, in an unmodifiable set
+     */
+    public Set<Cookie> getCookies(final CookieOrigin origin, final CookieSpec cookieSpec) {
         if (!isCookiesEnabled()) {
             return Collections.<Cookie>emptySet();
         }
 
-        final Set<Cookie> copy = new LinkedHashSet<>();
-        copy.addAll(cookies_);
-        return Collections.unmodifiableSet(copy);
+        CookieIndex index = getIndex();
+        final long now = System.currentTimeMillis();
+        if (now > index.nextExpiry_) {
+            clearExpired(new Date(now));
+            index = getIndex();
+        }
+        return index.getMatches(origin, cookieSpec);
+    }
+
+    private CookieIndex getIndex() {
+        CookieIndex index = index_;
+        if (index == null) {
+            synchronized (this) {
+                index = index_;
+                if (index == null) {
+                    index = new CookieIndex(cookies_);
+                    index_ = index;
+                }
+            }
+        }
+        return index;
     }
 
     /**
@@ -125,6 +282,9 @@ public class CookieManager implements Serializable {
                 foundExpired = true;
             }
         }
+        if (foundExpired) {
+            index_ = null;
+        }
         return foundExpired;
     }
 
@@ -201,6 +361,7 @@ public class CookieManager implements Serializable {
         if (cookie.getExpires() == null || cookie.getExpires().after(new Date())) {
             cookies_.add(cookie);
         }
+        index_ = null;
     }
 
     /**
@@ -213,7 +374,9 @@ public class CookieManager implements Serializable {
             return;
         }
 
-        cookies_.remove(cookie);
+        if (cookies_.remove(cookie)) {
+            index_ = null;
+        }
     }
 
     /**
@@ -226,5 +389,6 @@ public class CookieManager implements Serializable {
         }
 
         cookies_.clear();
+        index_ = null;
     }
 }
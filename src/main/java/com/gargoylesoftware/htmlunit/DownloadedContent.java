@@ -18,8 +18,15 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -68,24 +75,90 @@ public interface DownloadedContent extends Serializable {
         }
     }
 
+    /**
+     * Implementation keeping content in memory as a list of byte arrays; this avoids
+     * copying everything into one big array at the end of the download.
+     * All segments are completely filled, except the last one.
+     */
+    class InMemorySegments implements DownloadedContent {
+        private final List<byte[]> segments_;
+        private final long length_;
+
+        /**
+         * @param segments the segments
+         * @param length the number of bytes in all segments
+         */
+        InMemorySegments(final List<byte[]> segments, final long length) {
+            segments_ = new ArrayList<>(segments);
+            length_ = length;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            final List<InputStream> streams = new ArrayList<>(segments_.size());
+            long remaining = length_;
+            for (final byte[] segment : segments_) {
+                final int length = (int) Math.min(segment.length, remaining);
+                streams.add(new ByteArrayInputStream(segment, 0, length));
+                remaining -= length;
+            }
+            return new SequenceInputStream(Collections.enumeration(streams));
+        }
+
+        @Override
+        public void cleanUp() {
+            // nothing to do
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return length() == 0;
+        }
+
+        @Override
+        public long length() {
+            return length_;
+        }
+    }
+
     /**
      * Implementation keeping content on the file system.
      */
     class OnFile implements DownloadedContent {
         private final File file_;
         private final boolean temporary_;
+        private final boolean memoryMapped_;
 
         /**
          * @param file the file
          * @param temporary if true, the file will be deleted when cleanUp() is called.
          */
         OnFile(final File file, final boolean temporary) {
+            this(file, temporary, false);
+        }
+
+        /**
+         * @param file the file
+         * @param temporary if true, the file will be deleted when cleanUp() is called.
+         * @param memoryMapped if true, the file is memory mapped when read
+         */
+        OnFile(final File file, final boolean temporary, final boolean memoryMapped) {
             file_ = file;
             temporary_ = temporary;
+            memoryMapped_ = memoryMapped;
         }
 
         @Override
         public InputStream getInputStream() throws IOException {
+            if (memoryMapped_) {
+                try (FileChannel channel = FileChannel.open(file_.toPath(), StandardOpenOption.READ)) {
+                    final long size = channel.size();
+                    if (size <= Integer.MAX_VALUE) {
+                        // the mapping stays valid after the channel is closed
+                        return new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+                    }
+                }
+            }
             return Files.newInputStream(file_.toPath());
         }
 
@@ -114,6 +187,50 @@ public interface DownloadedContent extends Serializable {
             }
             return file_.length();
         }
+
+        /**
+         * An {@link InputStream} reading from a {@link ByteBuffer}.
+         */
+        private static final class ByteBufferInputStream extends InputStream {
+            private final ByteBuffer buffer_;
+
+            ByteBufferInputStream(final ByteBuffer buffer) {
+                buffer_ = buffer;
+            }
+
+            @Override
+            public int read() {
+                if (!buffer_.hasRemaining()) {
+                    return -1;
+                }
+                return buffer_.get() & 0xFF;
+            }
+
+            @Override
+            public int read(final byte[] bytes, final int offset, final int length) {
+                if (length == 0) {
+                    return 0;
+                }
+                if (!buffer_.hasRemaining()) {
+                    return -1;
+                }
+                final int count = Math.min(length, buffer_.remaining());
+                buffer_.get(bytes, offset, count);
+                return count;
+            }
+
+            @Override
+            public long skip(final long n) {
+                final int count = (int) Math.max(0, Math.min(n, buffer_.remaining()));
+                buffer_.position(buffer_.position() + count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return buffer_.remaining();
+            }
+        }
     }
 
     /**
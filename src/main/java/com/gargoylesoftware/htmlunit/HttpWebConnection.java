@@ -17,7 +17,6 @@ package com.gargoylesoftware.htmlunit;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.URL_AUTH_CREDENTIALS;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
@@ -42,6 +41,7 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLPeerUnverifiedException;
 import javax.net.ssl.SSLSocketFactory;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
@@ -137,9 +137,21 @@ public class HttpWebConnection implements WebConnection {
 
     private static final String HACKED_COOKIE_POLICY = "mine";
 
-    // have one per thread because this is (re)configured for every call (see configureHttpProcessorBuilder)
-    // do not use a ThreadLocal because this in only accessed form this class
-    private final Map<Thread, HttpClientBuilder> httpClientBuilder_ = new WeakHashMap<>();
+    /** The name of the context attribute holding the request specific interceptors. */
+    private static final String REQUEST_INTERCEPTORS = "htmlunit.request.interceptors";
+
+    /** The size of the first buffer segment if the content length is not known. */
+    private static final int FIRST_SEGMENT_SIZE = 8 * 1024;
+    /** The segments grow up to this size. */
+    private static final int MAX_SEGMENT_SIZE = 1024 * 1024;
+
+    /** The directory for the temporary files, if not configured in the options. */
+    private static File managedTempFileDirectory_;
+
+    // the builder and the client are shared by all threads; everything request specific
+    // is part of the request config or the (per thread) HttpClientContext
+    private HttpClientBuilder httpClientBuilder_;
+    private CloseableHttpClient httpClient_;
     private final WebClient webClient_;
 
     private String virtualHost_;
@@ -168,12 +180,13 @@ public class HttpWebConnection implements WebConnection {
      */
     @Override
     public WebResponse getResponse(final WebRequest request) throws IOException {
-        final HttpClientBuilder builder = reconfigureHttpClientIfNeeded(getHttpClientBuilder());
+        final CloseableHttpClient httpClient = getHttpClient();
+        final HttpClientContext httpContext = getHttpContext();
 
         HttpUriRequest httpMethod = null;
         try {
             try {
-                httpMethod = makeHttpMethod(request, builder);
+                httpMethod = makeHttpMethod(request, httpContext);
             }
             catch (final URISyntaxException e) {
                 throw new IOException("Unable to create URI from URL: " + request.getUrl().toExternalForm()
@@ -182,20 +195,15 @@ public class HttpWebConnection implements WebConnection {
             final HttpHost hostConfiguration = getHostConfiguration(request);
             final long startTime = System.currentTimeMillis();
 
-            final HttpContext httpContext = getHttpContext();
             HttpResponse httpResponse = null;
             try {
-                try (CloseableHttpClient closeableHttpClient = builder.build()) {
-                    httpResponse = closeableHttpClient.execute(hostConfiguration, httpMethod, httpContext);
-                }
+                httpResponse = httpClient.execute(hostConfiguration, httpMethod, httpContext);
             }
             catch (final SSLPeerUnverifiedException s) {
                 // Try to use only SSLv3 instead
                 if (webClient_.getOptions().isUseInsecureSSL()) {
                     HtmlUnitSSLConnectionSocketFactory.setUseSSL3Only(httpContext, true);
-                    try (CloseableHttpClient closeableHttpClient = builder.build()) {
-                        httpResponse = closeableHttpClient.execute(hostConfiguration, httpMethod, httpContext);
-                    }
+                    httpResponse = httpClient.execute(hostConfiguration, httpMethod, httpContext);
                 }
                 else {
                     throw s;
@@ -206,9 +214,12 @@ public class HttpWebConnection implements WebConnection {
                 // Calling code may catch the StackOverflowError, but due to the leak, the httpClient_ may
                 // come out of connections and throw a ConnectionPoolTimeoutException.
                 // => best solution, discard the HttpClient instance.
-                httpClientBuilder_.remove(Thread.currentThread());
+                discardHttpClient(httpClient);
                 throw e;
             }
+            finally {
+                httpContext.removeAttribute(REQUEST_INTERCEPTORS);
+            }
 
             final DownloadedContent downloadedBody = downloadResponseBody(httpResponse);
             final long endTime = System.currentTimeMillis();
@@ -242,7 +253,7 @@ public class HttpWebConnection implements WebConnection {
     /**
      * Returns the {@link HttpClientContext} for the current thread. Creates a new one if necessary.
      */
-    private synchronized HttpContext getHttpContext() {
+    private synchronized HttpClientContext getHttpContext() {
         HttpClientContext httpClientContext = httpClientContextByThread_.get(Thread.currentThread());
         if (httpClientContext == null) {
             httpClientContext = new HttpClientContext();
@@ -255,14 +266,15 @@ public class HttpWebConnection implements WebConnection {
         return httpClientContext;
     }
 
-    private void setProxy(final HttpRequestBase httpRequest, final WebRequest webRequest) {
+    private void setProxy(final HttpRequestBase httpRequest, final WebRequest webRequest,
+            final HttpClientContext httpContext) {
         final InetAddress localAddress = webClient_.getOptions().getLocalAddress();
         final RequestConfig.Builder requestBuilder = createRequestConfigBuilder(getTimeout(), localAddress);
 
         if (webRequest.getProxyHost() != null) {
             final HttpHost proxy = new HttpHost(webRequest.getProxyHost(), webRequest.getProxyPort());
             if (webRequest.isSocksProxy()) {
-                SocksConnectionSocketFactory.setSocksProxy(getHttpContext(), proxy);
+                SocksConnectionSocketFactory.setSocksProxy(httpContext, proxy);
             }
             else {
                 requestBuilder.setProxy(proxy);
@@ -278,15 +290,14 @@ public class HttpWebConnection implements WebConnection {
     /**
      * Creates an <tt>HttpMethod</tt> instance according to the specified parameters.
      * @param webRequest the request
-     * @param httpClientBuilder the httpClientBuilder that will be configured
+     * @param httpContext the context that will be configured for this request
      * @return the <tt>HttpMethod</tt> instance constructed according to the specified parameters
      * @throws IOException
      * @throws URISyntaxException
      */
-    private HttpUriRequest makeHttpMethod(final WebRequest webRequest, final HttpClientBuilder httpClientBuilder)
+    private HttpUriRequest makeHttpMethod(final WebRequest webRequest, final HttpClientContext httpContext)
         throws URISyntaxException {
 
-        final HttpContext httpContext = getHttpContext();
         final Charset charset = webRequest.getCharset();
         // Make sure that the URL is fully encoded. IE actually sends some Unicode chars in request
         // URLs; because of this we allow some Unicode chars in URLs. However, at this point we're
@@ -299,7 +310,7 @@ public class HttpWebConnection implements WebConnection {
             uri = URI.create(getVirtualHost());
         }
         final HttpRequestBase httpMethod = buildHttpMethod(webRequest.getHttpMethod(), uri);
-        setProxy(httpMethod, webRequest);
+        setProxy(httpMethod, webRequest, httpContext);
 
         if (!(httpMethod instanceof HttpEntityEnclosingRequest)) {
             // this is the case for GET as well as TRACE, DELETE, OPTIONS and HEAD
@@ -355,7 +366,7 @@ public class HttpWebConnection implements WebConnection {
             }
         }
 
-        configureHttpProcessorBuilder(httpClientBuilder, webRequest);
+        httpContext.setAttribute(REQUEST_INTERCEPTORS, getHttpRequestInterceptors(webRequest));
 
         // Tell the client where to get its credentials from
         // (it may have changed on the webClient since last call to getHttpClientFor(...))
@@ -379,8 +390,7 @@ public class HttpWebConnection implements WebConnection {
             // updating our client to keep the credentials for the next request
             credentialsProvider.setCredentials(authScope, requestCredentials);
         }
-        httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
-        httpContext.removeAttribute(HttpClientContext.CREDS_PROVIDER);
+        httpContext.setCredentialsProvider(credentialsProvider);
         httpContext.removeAttribute(HttpClientContext.TARGET_AUTH_STATE);
         return httpMethod;
     }
@@ -512,9 +522,8 @@ public class HttpWebConnection implements WebConnection {
      *
      * @return the initialized HTTP client
      */
-    protected HttpClientBuilder getHttpClientBuilder() {
-        final Thread currentThread = Thread.currentThread();
-        HttpClientBuilder builder = httpClientBuilder_.get(currentThread);
+    protected synchronized HttpClientBuilder getHttpClientBuilder() {
+        HttpClientBuilder builder = httpClientBuilder_;
         if (builder == null) {
             builder = createHttpClientBuilder();
 
@@ -527,12 +536,37 @@ public class HttpWebConnection implements WebConnection {
 
             builder.setDefaultCookieStore(new HtmlUnitCookieStore(webClient_.getCookieManager()));
             builder.setUserAgent(webClient_.getBrowserVersion().getUserAgent());
-            httpClientBuilder_.put(currentThread, builder);
+            configureHttpProcessorBuilder(builder);
+            httpClientBuilder_ = builder;
         }
 
         return builder;
     }
 
+    /**
+     * Returns the HTTP client shared by all requests; the client is (re)built if
+     * the options of the web client have changed.
+     *
+     * @return the HTTP client
+     */
+    private synchronized CloseableHttpClient getHttpClient() {
+        final HttpClientBuilder builder = getHttpClientBuilder();
+        if (reconfigureHttpClientIfNeeded(builder) || httpClient_ == null) {
+            httpClient_ = builder.build();
+        }
+        return httpClient_;
+    }
+
+    /**
+     * Discards the given HTTP client; the next request will build a new one.
+     * @param httpClient the client to discard
+     */
+    private synchronized void discardHttpClient(final CloseableHttpClient httpClient) {
+        if (httpClient_ == httpClient) {
+            httpClient_ = null;
+        }
+    }
+
     /**
      * Returns the timeout to use for socket and connection timeouts for HttpConnectionManager.
      * Is overridden to 0 by StreamingWebConnection which keeps reading after a timeout and
@@ -596,9 +630,11 @@ public class HttpWebConnection implements WebConnection {
     /**
      * React on changes that may have occurred on the WebClient settings.
      * Registering as a listener would be probably better.
+     * @return whether the builder was changed and the client has to be rebuilt
      */
-    private HttpClientBuilder reconfigureHttpClientIfNeeded(final HttpClientBuilder httpClientBuilder) {
+    private boolean reconfigureHttpClientIfNeeded(final HttpClientBuilder httpClientBuilder) {
         final WebClientOptions options = webClient_.getOptions();
+        boolean changed = false;
 
         // register new SSL factory only if settings have changed
         if (options.isUseInsecureSSL() != usedOptions_.isUseInsecureSSL()
@@ -618,14 +654,16 @@ public class HttpWebConnection implements WebConnection {
         final int timeout = getTimeout();
         if (timeout != usedOptions_.getTimeout()) {
             configureTimeout(httpClientBuilder, timeout);
+            changed = true;
         }
 
         if (connectionManager_ == null) {
             connectionManager_ = createConnectionManager(httpClientBuilder);
+            httpClientBuilder.setConnectionManager(connectionManager_);
+            changed = true;
         }
-        httpClientBuilder.setConnectionManager(connectionManager_);
 
-        return httpClientBuilder;
+        return changed;
     }
 
     private void configureHttpsScheme(final HttpClientBuilder builder) {
@@ -644,11 +682,10 @@ public class HttpWebConnection implements WebConnection {
         usedOptions_.setProxyConfig(options.getProxyConfig());
     }
 
-    private void configureHttpProcessorBuilder(final HttpClientBuilder builder, final WebRequest webRequest) {
+    private static void configureHttpProcessorBuilder(final HttpClientBuilder builder) {
         final HttpProcessorBuilder b = HttpProcessorBuilder.create();
-        for (final HttpRequestInterceptor i : getHttpRequestInterceptors(webRequest)) {
-            b.add(i);
-        }
+        // the request specific ones, see getHttpRequestInterceptors(WebRequest)
+        b.add(new RequestSpecificHttpRequestInterceptor());
 
         // These are the headers used in HttpClientBuilder, excluding the already added ones
         // (RequestClientConnControl and RequestAddCookies)
@@ -709,8 +746,14 @@ public class HttpWebConnection implements WebConnection {
             return new DownloadedContent.InMemory(null);
         }
 
+        // the length is not known for chunked or compressed (decompressed on the fly) content
+        long contentLength = httpEntity.getContentLength();
+        if (httpEntity.getContentEncoding() != null) {
+            contentLength = -1;
+        }
+
         try (InputStream is = httpEntity.getContent()) {
-            return downloadContent(is, webClient_.getOptions().getMaxInMemory());
+            return downloadContent(is, contentLength, webClient_.getOptions());
         }
     }
 
@@ -722,39 +765,137 @@ public class HttpWebConnection implements WebConnection {
      * @throws IOException in case of read issues
      */
     public static DownloadedContent downloadContent(final InputStream is, final int maxInMemory) throws IOException {
+        return downloadContent(is, maxInMemory, -1, null, false);
+    }
+
+    /**
+     * Reads the content of the stream and saves it in memory or on the file system,
+     * depending on {@link WebClientOptions#getMaxInMemory()}.
+     * @param is the stream to read
+     * @param contentLength the expected number of bytes or -1 if not known; used only to size the buffer
+     * @param options the options defining the limit and the file handling
+     * @return a wrapper around the downloaded content
+     * @throws IOException in case of read issues
+     */
+    public static DownloadedContent downloadContent(final InputStream is, final long contentLength,
+            final WebClientOptions options) throws IOException {
+        return downloadContent(is, options.getMaxInMemory(), contentLength,
+                options.getTempFileDirectory(), options.isMemoryMapTempFiles());
+    }
+
+    private static DownloadedContent downloadContent(final InputStream is, final int maxInMemory,
+            final long contentLength, final File tempFileDirectory, final boolean memoryMap) throws IOException {
         if (is == null) {
             return new DownloadedContent.InMemory(null);
         }
 
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-            final byte[] buffer = new byte[1024];
-            int nbRead;
-            try {
-                while ((nbRead = is.read(buffer)) != -1) {
-                    bos.write(buffer, 0, nbRead);
-                    if (bos.size() > maxInMemory) {
-                        // we have exceeded the max for memory, let's write everything to a temporary file
-                        final File file = File.createTempFile("htmlunit", ".tmp");
-                        file.deleteOnExit();
-                        try (OutputStream fos = Files.newOutputStream(file.toPath())) {
-                            bos.writeTo(fos); // what we have already read
-                            IOUtils.copyLarge(is, fos); // what remains from the server response
-                        }
-                        return new DownloadedContent.OnFile(file, true);
+        // the content is read into segments; if the content length is known the first one fits exactly
+        final List<byte[]> segments = new ArrayList<>();
+        byte[] segment;
+        if (contentLength >= 0 && contentLength <= maxInMemory) {
+            segment = new byte[(int) contentLength];
+        }
+        else {
+            segment = new byte[FIRST_SEGMENT_SIZE];
+        }
+        int pos = 0;
+        long length = 0;
+
+        try {
+            while (true) {
+                if (pos == segment.length) {
+                    // probe before allocating the next segment, usually we are at the end
+                    final int next = is.read();
+                    if (next == -1) {
+                        break;
                     }
+                    segments.add(segment);
+                    segment = new byte[(int) Math.min(Math.max(segment.length * 2L, FIRST_SEGMENT_SIZE),
+                                                        MAX_SEGMENT_SIZE)];
+                    segment[0] = (byte) next;
+                    pos = 1;
+                    length++;
+                }
+                else {
+                    final int nbRead = is.read(segment, pos, segment.length - pos);
+                    if (nbRead == -1) {
+                        break;
+                    }
+                    pos += nbRead;
+                    length += nbRead;
+                }
+
+                if (length > maxInMemory) {
+                    // we have exceeded the max for memory, let's write everything to a temporary file
+                    segments.add(segment);
+                    return saveToTempFile(is, segments, length, tempFileDirectory, memoryMap);
                 }
             }
-            catch (final ConnectionClosedException e) {
-                LOG.warn("Connection was closed while reading from stream.", e);
-                return new DownloadedContent.InMemory(bos.toByteArray());
-            }
-            catch (final EOFException e) {
-                // this might happen with broken gzip content
-                LOG.warn("EOFException while reading from stream.", e);
-                return new DownloadedContent.InMemory(bos.toByteArray());
+        }
+        catch (final ConnectionClosedException e) {
+            LOG.warn("Connection was closed while reading from stream.", e);
+        }
+        catch (final EOFException e) {
+            // this might happen with broken gzip content
+            LOG.warn("EOFException while reading from stream.", e);
+        }
+
+        if (segments.isEmpty() && pos == segment.length) {
+            return new DownloadedContent.InMemory(segment);
+        }
+        segments.add(segment);
+        return new DownloadedContent.InMemorySegments(segments, length);
+    }
+
+    private static DownloadedContent saveToTempFile(final InputStream is, final List<byte[]> segments,
+            final long length, final File tempFileDirectory, final boolean memoryMap) throws IOException {
+        File directory = tempFileDirectory;
+        if (directory == null) {
+            directory = getManagedTempFileDirectory();
+        }
+        final File file = Files.createTempFile(directory.toPath(), "htmlunit", ".tmp").toFile();
+        try (OutputStream fos = Files.newOutputStream(file.toPath())) {
+            // what we have already read
+            long remaining = length;
+            for (final byte[] segment : segments) {
+                final int count = (int) Math.min(segment.length, remaining);
+                fos.write(segment, 0, count);
+                remaining -= count;
             }
+            // what remains from the server response
+            IOUtils.copyLarge(is, fos);
+        }
+        catch (final IOException | RuntimeException e) {
+            FileUtils.deleteQuietly(file);
+            throw e;
+        }
+        return new DownloadedContent.OnFile(file, true, memoryMap);
+    }
 
-            return new DownloadedContent.InMemory(bos.toByteArray());
+    /**
+     * Returns the directory for the temporary files if no one is configured. Instead of registering
+     * every single file with {@link File#deleteOnExit()} (these entries are never removed), there is
+     * one shutdown hook removing this directory with all the files not cleaned up so far.
+     * @return the directory
+     * @throws IOException if the directory could not be created
+     */
+    private static File getManagedTempFileDirectory() throws IOException {
+        synchronized (HttpWebConnection.class) {
+            if (managedTempFileDirectory_ == null || !managedTempFileDirectory_.isDirectory()) {
+                final File directory = Files.createTempDirectory("htmlunit").toFile();
+                if (managedTempFileDirectory_ == null) {
+                    Runtime.getRuntime().addShutdownHook(new Thread("HtmlUnit temp file cleanup") {
+                        @Override
+                        public void run() {
+                            synchronized (HttpWebConnection.class) {
+                                FileUtils.deleteQuietly(managedTempFileDirectory_);
+                            }
+                        }
+                    });
+                }
+                managedTempFileDirectory_ = directory;
+            }
+            return managedTempFileDirectory_;
         }
     }
 
@@ -855,6 +996,24 @@ public class HttpWebConnection implements WebConnection {
         return list;
     }
 
+    /**
+     * Runs the interceptors created for the current request (see {@link #getHttpRequestInterceptors(WebRequest)});
+     * this allows to share one processor chain (and one client) between all requests.
+     */
+    private static final class RequestSpecificHttpRequestInterceptor implements HttpRequestInterceptor {
+        @Override
+        @SuppressWarnings("unchecked")
+        public void process(final HttpRequest request, final HttpContext context) throws HttpException, IOException {
+            final List<HttpRequestInterceptor> interceptors =
+                    (List<HttpRequestInterceptor>) context.getAttribute(REQUEST_INTERCEPTORS);
+            if (interceptors != null) {
+                for (final HttpRequestInterceptor interceptor : interceptors) {
+                    interceptor.process(request, context);
+                }
+            }
+        }
+    }
+
     /** We must have a separate class per header, because of org.apache.http.protocol.ChainBuilder. */
     private static final class HostHeaderHttpRequestInterceptor implements HttpRequestInterceptor {
         private String value_;
@@ -1011,8 +1170,9 @@ public class HttpWebConnection implements WebConnection {
      * {@inheritDoc}
      */
     @Override
-    public void close() {
-        httpClientBuilder_.clear();
+    public synchronized void close() {
+        httpClientBuilder_ = null;
+        httpClient_ = null;
 
         if (connectionManager_ != null) {
             connectionManager_.shutdown();
@@ -19,8 +19,11 @@ import java.net.InetAddress;
 import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.regex.Pattern;
 
 import org.apache.commons.net.util.SubnetUtils;
 
@@ -42,50 +45,121 @@ import net.sourceforge.htmlunit.corejs.javascript.Undefined;
 public final class ProxyAutoConfig {
     private static final String TIMEZONE_GMT = "GMT";
 
-    private ProxyAutoConfig() {
+    /** How long (in milliseconds) the result for an URL is reused. */
+    private static final long RESULT_TIME_TO_LIVE = 60_000;
+
+    /** The maximum number of URLs the results are kept for. */
+    private static final int MAX_RESULTS = 500;
+
+    /** The result of scripts using one of these depends on the time, it can't be reused. */
+    private static final Pattern TIME_DEPENDENT_PATTERN
+            = Pattern.compile("\\b(?:timeRange|weekdayRange|dateRange|Date)\\b");
+
+    private final Scriptable scope_;
+    private final NativeFunction findProxyForURL_;
+    private final boolean reuseResults_;
+
+    /** The results of FindProxyForURL per URL, least recently used ones are removed first. */
+    private final Map<String, Result> results_ = new LinkedHashMap<String, Result>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Result> eldest) {
+            return size() > MAX_RESULTS;
+        }
+    };
+
+    private static final class Result {
+        private final String value_;
+        private final long expiration_;
+
+        Result(final String value, final long expiration) {
+            value_ = value;
+            expiration_ = expiration;
+        }
     }
 
     /**
-     * Evaluates the <tt>FindProxyForURL</tt> method of the specified content.
+     * Creates a new instance; the content is evaluated once and the defined
+     * <tt>FindProxyForURL</tt> method is used for all URLs.
      * @param content the JavaScript content
-     * @param url the URL to be retrieved
-     * @return semicolon-separated result
      */
-    public static String evaluate(final String content, final URL url) {
+    ProxyAutoConfig(final String content) {
+        reuseResults_ = !TIME_DEPENDENT_PATTERN.matcher(content).find();
+
         final Context cx = Context.enter();
         try {
-            final ProxyAutoConfig config = new ProxyAutoConfig();
             final Scriptable scope = cx.initStandardObjects();
 
-            config.defineMethod("isPlainHostName", scope);
-            config.defineMethod("dnsDomainIs", scope);
-            config.defineMethod("localHostOrDomainIs", scope);
-            config.defineMethod("isResolvable", scope);
-            config.defineMethod("isInNet", scope);
-            config.defineMethod("dnsResolve", scope);
-            config.defineMethod("myIpAddress", scope);
-            config.defineMethod("dnsDomainLevels", scope);
-            config.defineMethod("shExpMatch", scope);
-            config.defineMethod("weekdayRange", scope);
-            config.defineMethod("dateRange", scope);
-            config.defineMethod("timeRange", scope);
+            defineMethod("isPlainHostName", scope);
+            defineMethod("dnsDomainIs", scope);
+            defineMethod("localHostOrDomainIs", scope);
+            defineMethod("isResolvable", scope);
+            defineMethod("isInNet", scope);
+            defineMethod("dnsResolve", scope);
+            defineMethod("myIpAddress", scope);
+            defineMethod("dnsDomainLevels", scope);
+            defineMethod("shExpMatch", scope);
+            defineMethod("weekdayRange", scope);
+            defineMethod("dateRange", scope);
+            defineMethod("timeRange", scope);
 
             cx.evaluateString(scope, "var ProxyConfig = function() {}; ProxyConfig.bindings = {}", "<init>", 1, null);
             cx.evaluateString(scope, content, "<Proxy Auto-Config>", 1, null);
-            final Object[] functionArgs = {url.toExternalForm(), url.getHost()};
-            final Object fObj = scope.get("FindProxyForURL", scope);
 
-            final NativeFunction f = (NativeFunction) fObj;
-            final Object result = f.call(cx, scope, scope, functionArgs);
-            return Context.toString(result);
+            scope_ = scope;
+            findProxyForURL_ = (NativeFunction) scope.get("FindProxyForURL", scope);
+        }
+        finally {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Evaluates the <tt>FindProxyForURL</tt> method of the specified content.
+     * @param content the JavaScript content
+     * @param url the URL to be retrieved
+     * @return semicolon-separated result
+     */
+    public static String evaluate(final String content, final URL url) {
+        return new ProxyAutoConfig(content).findProxyForURL(url);
+    }
+
+    /**
+     * Calls the <tt>FindProxyForURL</tt> method for the given URL. The result
+     * is reused for further calls with the same URL for some time, unless the
+     * script uses <tt>timeRange</tt>, <tt>weekdayRange</tt>, <tt>dateRange</tt>
+     * or <tt>Date</tt>; a reused result could outlive the time window it was
+     * computed for.
+     * @param url the URL to be retrieved
+     * @return semicolon-separated result
+     */
+    synchronized String findProxyForURL(final URL url) {
+        final String urlString = url.toExternalForm();
+        final long now = System.currentTimeMillis();
+
+        if (reuseResults_) {
+            final Result cached = results_.get(urlString);
+            if (cached != null && cached.expiration_ > now) {
+                return cached.value_;
+            }
+        }
+
+        final Context cx = Context.enter();
+        try {
+            final Object[] functionArgs = {urlString, url.getHost()};
+            final Object result = findProxyForURL_.call(cx, scope_, scope_, functionArgs);
+            final String value = Context.toString(result);
+            if (reuseResults_) {
+                results_.put(urlString, new Result(value, now + RESULT_TIME_TO_LIVE));
+            }
+            return value;
         }
         finally {
             Context.exit();
         }
     }
 
-    private void defineMethod(final String methodName, final Scriptable scope) {
-        for (Method method : getClass().getMethods()) {
+    private static void defineMethod(final String methodName, final Scriptable scope) {
+        for (Method method : ProxyAutoConfig.class.getMethods()) {
             if (method.getName().equals(methodName)) {
                 final FunctionObject functionObject = new FunctionObject(methodName, method, scope);
                 ((ScriptableObject) scope).defineProperty(methodName, functionObject, ScriptableObject.EMPTY);
@@ -34,6 +34,7 @@ public class ProxyConfig implements Serializable {
     private final Map<String, Pattern> proxyBypassHosts_ = new HashMap<>();
     private String proxyAutoConfigUrl_;
     private String proxyAutoConfigContent_;
+    private transient ProxyAutoConfig proxyAutoConfig_;
 
     /**
      * Creates a new instance.
@@ -179,5 +180,21 @@ public class ProxyConfig implements Serializable {
      */
     protected void setProxyAutoConfigContent(final String proxyAutoConfigContent) {
         proxyAutoConfigContent_ = proxyAutoConfigContent;
+        proxyAutoConfig_ = null;
+    }
+
+    /**
+     * Returns the proxy auto-config created from the content; the content is
+     * evaluated only once for all URLs.
+     * @return the proxy auto-config or {@code null} if there is no content
+     */
+    ProxyAutoConfig getProxyAutoConfig() {
+        if (proxyAutoConfig_ == null) {
+            final String content = getProxyAutoConfigContent();
+            if (content != null) {
+                proxyAutoConfig_ = new ProxyAutoConfig(content);
+            }
+        }
+        return proxyAutoConfig_;
     }
 }
@@ -43,11 +43,12 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.lang3.StringUtils;
@@ -63,6 +64,7 @@ import org.apache.http.cookie.CookieSpec;
 import org.apache.http.cookie.MalformedCookieException;
 import org.apache.http.message.BufferedHeader;
 import org.apache.http.util.CharArrayBuffer;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
 
 import com.gargoylesoftware.css.parser.CSSErrorHandler;
 import com.gargoylesoftware.htmlunit.activex.javascript.msxml.MSXMLActiveXObjectFactory;
@@ -82,6 +84,7 @@ import com.gargoylesoftware.htmlunit.javascript.JavaScriptEngine;
 import com.gargoylesoftware.htmlunit.javascript.JavaScriptErrorListener;
 import com.gargoylesoftware.htmlunit.javascript.background.JavaScriptJobManager;
 import com.gargoylesoftware.htmlunit.javascript.host.Location;
+import com.gargoylesoftware.htmlunit.javascript.host.WebSocket;
 import com.gargoylesoftware.htmlunit.javascript.host.Window;
 import com.gargoylesoftware.htmlunit.javascript.host.css.ComputedCSSStyleDeclaration;
 import com.gargoylesoftware.htmlunit.javascript.host.dom.Node;
@@ -180,6 +183,9 @@ public class WebClient implements Serializable, AutoCloseable {
     private CSSErrorHandler cssErrorHandler_ = new DefaultCssErrorHandler();
     private OnbeforeunloadHandler onbeforeunloadHandler_;
     private Cache cache_ = new Cache();
+    private transient ExecutorService prefetchExecutor_;
+    private transient WebSocketClient webSocketClient_;
+    private transient volatile CookieSpec cookieSpec_;
 
     /** target "_blank". */
     private static final String TARGET_BLANK = "_blank";
@@ -1166,7 +1172,7 @@ public class WebClient implements Serializable, AutoCloseable {
 
         try (InputStream is = connection.getInputStream()) {
             final DownloadedContent downloadedContent =
-                    HttpWebConnection.downloadContent(is, getOptions().getMaxInMemory());
+                    HttpWebConnection.downloadContent(is, -1, getOptions());
             final WebResponseData data = new WebResponseData(downloadedContent, 200, "OK", responseHeaders);
             return new WebResponse(data, url, webRequest.getHttpMethod(), 0);
         }
@@ -1353,13 +1359,12 @@ public class WebClient implements Serializable, AutoCloseable {
             final ProxyConfig proxyConfig = getOptions().getProxyConfig();
             if (proxyConfig.getProxyAutoConfigUrl() != null) {
                 if (!UrlUtils.sameFile(new URL(proxyConfig.getProxyAutoConfigUrl()), url)) {
-                    String content = proxyConfig.getProxyAutoConfigContent();
-                    if (content == null) {
-                        content = getPage(proxyConfig.getProxyAutoConfigUrl())
+                    if (proxyConfig.getProxyAutoConfigContent() == null) {
+                        final String content = getPage(proxyConfig.getProxyAutoConfigUrl())
                             .getWebResponse().getContentAsString();
                         proxyConfig.setProxyAutoConfigContent(content);
                     }
-                    final String allValue = ProxyAutoConfig.evaluate(content, url);
+                    final String allValue = proxyConfig.getProxyAutoConfig().findProxyForURL(url);
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("Proxy Auto-Config: value '" + allValue + "' for URL " + url);
                     }
@@ -1933,9 +1938,67 @@ public class WebClient implements Serializable, AutoCloseable {
             LOG.error("Exception while closing the connection", e);
         }
 
+        synchronized (this) {
+            if (prefetchExecutor_ != null) {
+                prefetchExecutor_.shutdownNow();
+                prefetchExecutor_ = null;
+            }
+
+            // the sockets are already closed together with their pages
+            if (webSocketClient_ != null) {
+                try {
+                    webSocketClient_.stop();
+                }
+                catch (final Exception e) {
+                    LOG.error("Exception while stopping the websocket client", e);
+                }
+                webSocketClient_ = null;
+            }
+        }
+
         cache_.clear();
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns the executor used to prefetch the subresources of html pages. The pool is created on
+     * first use with the number of threads set by {@link WebClientOptions#setPrefetchThreads(int)}.
+     *
+     * @return the executor or {@code null} if prefetching is disabled
+     */
+    public synchronized ExecutorService getPrefetchExecutor() {
+        final int threads = getOptions().getPrefetchThreads();
+        if (threads < 1) {
+            return null;
+        }
+        if (prefetchExecutor_ == null) {
+            prefetchExecutor_ = Executors.newFixedThreadPool(threads, runnable -> {
+                final Thread thread = new Thread(runnable, "Prefetcher for " + WebClient.this);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return prefetchExecutor_;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns the client used by all the JavaScript WebSockets of this web client. The client
+     * (and its threads) is created and started on first use and stopped by {@link #close()};
+     * the WebSocket options of {@link WebClientOptions} are applied at creation time.
+     *
+     * @return the started client
+     * @throws Exception if the client could not be started
+     */
+    public synchronized WebSocketClient getWebSocketClient() throws Exception {
+        if (webSocketClient_ == null) {
+            webSocketClient_ = WebSocket.startWebSocketClient(this);
+        }
+        return webSocketClient_;
+    }
+
     /**
      * <p><span style="color:red">Experimental API: May be changed in next release
      * and may not yet work perfectly!</span></p>
@@ -2313,7 +2376,7 @@ public class WebClient implements Serializable, AutoCloseable {
      * @param url the URL on which to filter the returned cookies
      * @return the currently configured cookies applicable to the specified URL, in an unmodifiable set
      */
-    public synchronized Set<Cookie> getCookies(final URL url) {
+    public Set<Cookie> getCookies(final URL url) {
         final CookieManager cookieManager = getCookieManager();
 
         if (!cookieManager.isCookiesEnabled()) {
@@ -2335,25 +2398,15 @@ public class WebClient implements Serializable, AutoCloseable {
 
         final int port = cookieManager.getPort(normalizedUrl);
 
-        // discard expired cookies
-        cookieManager.clearExpired(new Date());
-
-        final List<org.apache.http.cookie.Cookie> all = Cookie.toHttpClient(cookieManager.getCookies());
-        final List<org.apache.http.cookie.Cookie> matches = new ArrayList<>();
-
-        if (all.size() > 0) {
-            final CookieOrigin cookieOrigin = new CookieOrigin(host, port, path, secure);
-            final CookieSpec cookieSpec = new HtmlUnitBrowserCompatCookieSpec(getBrowserVersion());
-            for (final org.apache.http.cookie.Cookie cookie : all) {
-                if (cookieSpec.match(cookie, cookieOrigin)) {
-                    matches.add(cookie);
-                }
-            }
+        // the spec is stateless; reusing it allows the cookie manager to remember the matches
+        CookieSpec cookieSpec = cookieSpec_;
+        if (cookieSpec == null) {
+            cookieSpec = new HtmlUnitBrowserCompatCookieSpec(getBrowserVersion());
+            cookieSpec_ = cookieSpec;
         }
 
-        final Set<Cookie> cookies = new LinkedHashSet<>();
-        cookies.addAll(Cookie.fromHttpClient(matches));
-        return Collections.unmodifiableSet(cookies);
+        // expired cookies are discarded by the cookie manager
+        return cookieManager.getCookies(new CookieOrigin(host, port, path, secure), cookieSpec);
     }
 
     /**
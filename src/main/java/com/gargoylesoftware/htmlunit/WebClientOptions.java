@@ -14,6 +14,7 @@
  */
 package com.gargoylesoftware.htmlunit;
 
+import java.io.File;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.net.InetAddress;
@@ -30,6 +31,7 @@ import java.security.KeyStore;
 public class WebClientOptions implements Serializable {
 
     private boolean javaScriptEnabled_ = true;
+    private boolean compileJavaScript_;
     private boolean cssEnabled_ = true;
     private boolean printContentOnFailingStatusCode_ = true;
     private boolean throwExceptionOnFailingStatusCode_ = true;
@@ -52,10 +54,13 @@ public class WebClientOptions implements Serializable {
     private boolean useInsecureSSL_; // default is secure SSL
     private String sslInsecureProtocol_;
     private int maxInMemory_ = 500 * 1024;
+    private File tempFileDirectory_;
+    private boolean memoryMapTempFiles_;
     private int historySizeLimit_ = 50;
     private int historyPageCacheLimit_ = Integer.MAX_VALUE;
     private InetAddress localAddress_;
     private boolean downloadImages_;
+    private int prefetchThreads_;
     private int screenWidth_ = 1024;
     private int screenHeight_ = 768;
 
@@ -228,6 +233,28 @@ public class WebClientOptions implements Serializable {
         return javaScriptEnabled_;
     }
 
+    /**
+     * Enables/disables the compilation of JavaScript code to Java bytecode. By default, this
+     * property is disabled and all JavaScript code is interpreted.
+     * <p>Compiled code is much faster for CPU bound scripts but the compilation itself takes
+     * longer; the JavaScript debugger is not supported in this mode (if a debugger is set, the
+     * code is still interpreted). The JavaScript timeout is enforced by a watchdog.</p>
+     *
+     * @param compile {@code true} to compile the JavaScript code
+     */
+    public void setCompileJavaScript(final boolean compile) {
+        compileJavaScript_ = compile;
+    }
+
+    /**
+     * Returns {@code true} if JavaScript code is compiled to Java bytecode instead of being interpreted.
+     *
+     * @return {@code true} if JavaScript code is compiled
+     */
+    public boolean isCompileJavaScript() {
+        return compileJavaScript_;
+    }
+
     /**
      * Enables/disables CSS support. By default, this property is enabled.
      * If disabled HtmlUnit will not download the linked css files and also
@@ -537,6 +564,46 @@ public class WebClientOptions implements Serializable {
         maxInMemory_ = maxInMemory;
     }
 
+    /**
+     * Returns the directory for the temporary files used to store responses
+     * bigger than {@link #getMaxInMemory()}.
+     * @return the directory or {@code null} if a directory inside {@code java.io.tmpdir}
+     *         created and managed by HtmlUnit is used
+     */
+    public File getTempFileDirectory() {
+        return tempFileDirectory_;
+    }
+
+    /**
+     * Sets the directory for the temporary files used to store responses bigger than
+     * {@link #getMaxInMemory()}. The files are deleted when the response is cleaned up.
+     * @param tempFileDirectory the directory or {@code null} to use a directory inside
+     *        {@code java.io.tmpdir} created and managed by HtmlUnit
+     */
+    public void setTempFileDirectory(final File tempFileDirectory) {
+        tempFileDirectory_ = tempFileDirectory;
+    }
+
+    /**
+     * Returns whether the temporary files of responses bigger than {@link #getMaxInMemory()}
+     * are memory mapped when read.
+     * @return {@code true} if memory mapping is used
+     */
+    public boolean isMemoryMapTempFiles() {
+        return memoryMapTempFiles_;
+    }
+
+    /**
+     * Enables or disables memory mapping of the temporary files of responses bigger than
+     * {@link #getMaxInMemory()}; this speeds up reading big responses several times. Be aware
+     * that on some platforms (e.g. Windows) a mapped file can not be deleted until the mapping
+     * is garbage collected. By default this is disabled.
+     * @param memoryMapTempFiles {@code true} to use memory mapping
+     */
+    public void setMemoryMapTempFiles(final boolean memoryMapTempFiles) {
+        memoryMapTempFiles_ = memoryMapTempFiles;
+    }
+
     /**
      * Returns the maximum number of {@link Page pages} kept in {@link WebWindow#getHistory()}.
      * @return the maximum number of pages in history
@@ -620,6 +687,30 @@ public class WebClientOptions implements Serializable {
         return downloadImages_;
     }
 
+    /**
+     * Sets the number of threads used to prefetch the external scripts, stylesheets and (if
+     * {@link #isDownloadImages()}) images of an html page in parallel, before the page is parsed.
+     * The scripts are still executed in document order; only the downloads are done in advance.
+     * As in real browsers, a prefetch request may not see cookies set by a script executed before.
+     * The default is <tt>0</tt>, meaning that every resource is downloaded when it is needed.
+     *
+     * @param prefetchThreads the number of threads (must be &gt;= 0)
+     */
+    public void setPrefetchThreads(final int prefetchThreads) {
+        if (prefetchThreads < 0) {
+            throw new IllegalArgumentException("Illegal value for prefetchThreads: " + prefetchThreads);
+        }
+        prefetchThreads_ = prefetchThreads;
+    }
+
+    /**
+     * Returns the number of threads used to prefetch the subresources of an html page.
+     * @return the number of threads; <tt>0</tt> if prefetching is disabled
+     */
+    public int getPrefetchThreads() {
+        return prefetchThreads_;
+    }
+
     /**
      * Sets the screen width.
      *
@@ -28,7 +28,6 @@ import java.util.List;
 
 import org.apache.commons.io.ByteOrderMark;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.BOMInputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -156,8 +155,16 @@ public class WebResponse implements Serializable {
      *         or {@code null} if none was specified
      */
     public Charset getContentCharsetOrNull() {
+        if (responseData_ != null && responseData_.isCharsetSniffed()) {
+            return responseData_.getSniffedCharset();
+        }
+
         try (InputStream is = getContentAsStream()) {
-            return EncodingSniffer.sniffEncoding(getResponseHeaders(), is);
+            final Charset charset = EncodingSniffer.sniffEncoding(getResponseHeaders(), is);
+            if (responseData_ != null) {
+                responseData_.setSniffedCharset(charset);
+            }
+            return charset;
         }
         catch (final IOException e) {
             LOG.warn("Error trying to sniff encoding.", e);
@@ -219,30 +226,29 @@ public class WebResponse implements Serializable {
      * Returns the response content as a string, using the specified charset,
      * rather than the charset/encoding specified in the server response.
      * If there is a bom header the charset parameter will be overwritten by the bom.
+     *
+     * <p>The whole content is decoded at once from the bytes into the string (there is no streaming
+     * variant of this method); the parsers use {@link #getContentAsStream()} and decode while parsing.
+     * Large responses should be processed the same way.</p>
+     *
      * @param encoding the charset/encoding to use to convert the response content into a string
      * @param ignoreUtf8Bom if true utf8 bom header will be ignored
      * @return the response content as a string or null if the content retrieval was failing
      */
     public String getContentAsString(final Charset encoding, final boolean ignoreUtf8Bom) {
         if (responseData_ != null) {
+            String content = responseData_.getDecodedContent(encoding, ignoreUtf8Bom);
+            if (content != null) {
+                return content;
+            }
+
             try (InputStream in = responseData_.getInputStream()) {
                 if (in != null) {
-                    try (BOMInputStream bomIn = new BOMInputStream(in, BOM_HEADERS)) {
-                        // there seems to be a bug in BOMInputStream
-                        // we have to call this before hasBOM(ByteOrderMark)
-                        if (bomIn.hasBOM()) {
-                            if (!ignoreUtf8Bom && bomIn.hasBOM(ByteOrderMark.UTF_8)) {
-                                return IOUtils.toString(bomIn, UTF_8);
-                            }
-                            if (bomIn.hasBOM(ByteOrderMark.UTF_16BE)) {
-                                return IOUtils.toString(bomIn, UTF_16BE);
-                            }
-                            if (bomIn.hasBOM(ByteOrderMark.UTF_16LE)) {
-                                return IOUtils.toString(bomIn, UTF_16LE);
-                            }
-                        }
-                        return IOUtils.toString(bomIn, encoding);
-                    }
+                    // decode the bytes directly into the string, this avoids the
+                    // intermediate (and growing) buffer of a reader based conversion
+                    content = decode(readContent(in), encoding, ignoreUtf8Bom);
+                    responseData_.setDecodedContent(encoding, ignoreUtf8Bom, content);
+                    return content;
                 }
             }
             catch (final IOException e) {
@@ -252,6 +258,50 @@ public class WebResponse implements Serializable {
         return null;
     }
 
+    /**
+     * Reads the whole content. If the content is not compressed, its length is known
+     * and the bytes are read into an array of the exact size.
+     */
+    private byte[] readContent(final InputStream in) throws IOException {
+        final long length = responseData_.getContentLength();
+        if (length >= 0 && length <= Integer.MAX_VALUE && getResponseHeaderValue("Content-Encoding") == null) {
+            return IOUtils.toByteArray(in, length);
+        }
+        return IOUtils.toByteArray(in);
+    }
+
+    private static String decode(final byte[] bytes, final Charset encoding, final boolean ignoreUtf8Bom) {
+        for (final ByteOrderMark bom : BOM_HEADERS) {
+            if (hasBom(bytes, bom)) {
+                final int length = bom.length();
+                if (bom == ByteOrderMark.UTF_8) {
+                    if (ignoreUtf8Bom) {
+                        return new String(bytes, length, bytes.length - length, encoding);
+                    }
+                    return new String(bytes, length, bytes.length - length, UTF_8);
+                }
+                if (bom == ByteOrderMark.UTF_16BE) {
+                    return new String(bytes, length, bytes.length - length, UTF_16BE);
+                }
+                return new String(bytes, length, bytes.length - length, UTF_16LE);
+            }
+        }
+        return new String(bytes, encoding);
+    }
+
+    private static boolean hasBom(final byte[] bytes, final ByteOrderMark bom) {
+        final int length = bom.length();
+        if (bytes.length < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if ((bytes[i] & 0xFF) != bom.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns length of the content data.
      * @return the length
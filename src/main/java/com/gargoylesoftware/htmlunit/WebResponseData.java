@@ -19,6 +19,8 @@ import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
+import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
@@ -50,6 +52,30 @@ public class WebResponseData implements Serializable {
     private final List<NameValuePair> responseHeaders_;
     private final DownloadedContent downloadedContent_;
 
+    /*
+     * The results of the charset sniffing and of the last decoding of the content, remembered
+     * because the content is usually decoded more than once (e.g. by the page creation, the
+     * parser and scripts); see WebResponse.
+     */
+    private transient volatile Charset sniffedCharset_;
+    private transient volatile boolean charsetSniffed_;
+    private transient volatile SoftReference<DecodedContent> decodedContent_;
+
+    /**
+     * The content decoded with a specific charset.
+     */
+    static final class DecodedContent {
+        private final Charset charset_;
+        private final boolean ignoreUtf8Bom_;
+        private final String content_;
+
+        DecodedContent(final Charset charset, final boolean ignoreUtf8Bom, final String content) {
+            charset_ = charset;
+            ignoreUtf8Bom_ = ignoreUtf8Bom;
+            content_ = content;
+        }
+    }
+
     /**
      * Constructs with a raw byte[] (mostly for testing).
      *
@@ -204,10 +230,63 @@ public class WebResponseData implements Serializable {
         return downloadedContent_.length();
     }
 
+    /**
+     * Returns {@code true} if the charset was already sniffed, see {@link #getSniffedCharset()}.
+     * @return whether the charset was already sniffed
+     */
+    boolean isCharsetSniffed() {
+        return charsetSniffed_;
+    }
+
+    /**
+     * Returns the remembered charset found in the headers or in the content.
+     * @return the charset or {@code null}
+     */
+    Charset getSniffedCharset() {
+        return sniffedCharset_;
+    }
+
+    /**
+     * Remembers the charset found in the headers or in the content.
+     * @param charset the charset or {@code null} if none was found
+     */
+    void setSniffedCharset(final Charset charset) {
+        sniffedCharset_ = charset;
+        charsetSniffed_ = true;
+    }
+
+    /**
+     * Returns the remembered decoded content, if it was decoded the same way and not yet garbage collected.
+     * @param charset the charset
+     * @param ignoreUtf8Bom whether an utf-8 bom is ignored
+     * @return the content or {@code null}
+     */
+    String getDecodedContent(final Charset charset, final boolean ignoreUtf8Bom) {
+        final SoftReference<DecodedContent> reference = decodedContent_;
+        if (reference != null) {
+            final DecodedContent decoded = reference.get();
+            if (decoded != null && decoded.ignoreUtf8Bom_ == ignoreUtf8Bom && decoded.charset_.equals(charset)) {
+                return decoded.content_;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remembers the decoded content; only softly reachable, the content is decoded again if needed.
+     * @param charset the charset
+     * @param ignoreUtf8Bom whether an utf-8 bom is ignored
+     * @param content the decoded content
+     */
+    void setDecodedContent(final Charset charset, final boolean ignoreUtf8Bom, final String content) {
+        decodedContent_ = new SoftReference<>(new DecodedContent(charset, ignoreUtf8Bom, content));
+    }
+
     /**
      * Clean up the downloaded content.
      */
     public void cleanUp() {
+        decodedContent_ = null;
         downloadedContent_.cleanUp();
     }
 }
@@ -177,7 +177,7 @@ public class DomAttr extends DomNamespaceNode implements Attr {
     public void setTextContent(final String textContent) {
         final boolean mappedElement = HtmlPage.isMappedElement(getOwnerDocument(), getName());
         if (mappedElement) {
-            ((HtmlPage) getPage()).removeMappedElement((HtmlElement) getOwnerElement());
+            ((HtmlPage) getPage()).removeMappedElement(getOwnerElement());
         }
         setValue(textContent);
         if (mappedElement) {
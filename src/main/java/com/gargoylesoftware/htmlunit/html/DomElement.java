@@ -408,7 +408,14 @@ public class DomElement extends DomNamespaceNode implements Element {
      */
     @Override
     public void removeAttribute(final String attributeName) {
+        final HtmlPage mappingPage = getMappingPage(attributeName);
+        if (mappingPage != null) {
+            mappingPage.removeMappedElement(this);
+        }
         attributes_.remove(attributeName);
+        if (mappingPage != null) {
+            mappingPage.addMappedElement(this);
+        }
     }
 
     /**
@@ -502,6 +509,11 @@ public class DomElement extends DomNamespaceNode implements Element {
     protected void setAttributeNS(final String namespaceURI, final String qualifiedName,
             final String attributeValue, final boolean notifyAttributeChangeListeners,
             final boolean notifyMutationObservers) {
+        final HtmlPage mappingPage = getMappingPage(qualifiedName);
+        if (mappingPage != null) {
+            mappingPage.removeMappedElement(this);
+        }
+
         final String value = attributeValue;
         final DomAttr newAttr = new DomAttr(getPage(), namespaceURI, qualifiedName, value, true);
         newAttr.setParentNode(this);
@@ -510,6 +522,27 @@ public class DomElement extends DomNamespaceNode implements Element {
         if (namespaceURI != null) {
             namespaces_.put(namespaceURI, newAttr.getPrefix());
         }
+
+        if (mappingPage != null) {
+            mappingPage.addMappedElement(this);
+        }
+    }
+
+    /**
+     * Returns the page whose id and name maps have to follow a change of the given attribute.
+     * {@link HtmlElement}s update the maps themselves, other elements (e.g. svg) rely on this.
+     * @param attributeName the name of the changed attribute
+     * @return the page or {@code null} if no map has to be updated
+     */
+    private HtmlPage getMappingPage(final String attributeName) {
+        if (this instanceof HtmlElement || !isAttachedToPage()) {
+            return null;
+        }
+        final SgmlPage page = getPage();
+        if (HtmlPage.isMappedElement(page, attributeName)) {
+            return (HtmlPage) page;
+        }
+        return null;
     }
 
     /**
@@ -604,8 +637,23 @@ public class DomElement extends DomNamespaceNode implements Element {
             @Override
             @SuppressWarnings("unchecked")
             protected List<E> provideElements() {
+                final DomNode node = getDomNode();
+                final SgmlPage page = node.getPage();
+                if (page instanceof HtmlPage && node == page.getDocumentElement()) {
+                    final List<DomElement> candidates = ((HtmlPage) page).getElementsByLocalName(tagName);
+                    if (candidates != null) {
+                        final List<E> res = new ArrayList<>(candidates.size());
+                        for (final DomElement elem : candidates) {
+                            if (elem != node && isHtmlElementDescendant(elem, node)) {
+                                res.add((E) elem);
+                            }
+                        }
+                        return res;
+                    }
+                }
+
                 final List<E> res = new LinkedList<>();
-                for (final HtmlElement elem : getDomNode().getHtmlElementDescendants()) {
+                for (final HtmlElement elem : node.getHtmlElementDescendants()) {
                     if (elem.getLocalName().equalsIgnoreCase(tagName)) {
                         res.add((E) elem);
                     }
@@ -615,6 +663,22 @@ public class DomElement extends DomNamespaceNode implements Element {
         };
     }
 
+    /**
+     * Returns whether the element is found by {@link #getHtmlElementDescendants()} of the given
+     * ancestor, that means the element and all its parents up to the ancestor are {@link HtmlElement}s.
+     */
+    private static boolean isHtmlElementDescendant(final DomElement element, final DomNode ancestor) {
+        if (!(element instanceof HtmlElement)) {
+            return false;
+        }
+        for (DomNode parent = element.getParentNode(); parent != ancestor; parent = parent.getParentNode()) {
+            if (!(parent instanceof HtmlElement)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      * Not yet implemented.
@@ -656,7 +720,14 @@ public class DomElement extends DomNamespaceNode implements Element {
      */
     @Override
     public Attr setAttributeNode(final Attr attribute) {
+        final HtmlPage mappingPage = getMappingPage(attribute.getName());
+        if (mappingPage != null) {
+            mappingPage.removeMappedElement(this);
+        }
         attributes_.setNamedItem(attribute);
+        if (mappingPage != null) {
+            mappingPage.addMappedElement(this);
+        }
         return null;
     }
 
@@ -1390,7 +1461,7 @@ public class DomElement extends DomNamespaceNode implements Element {
             mouseOver_ = mouseOver;
 
             final SimpleScriptable scriptable = getScriptableObject();
-            scriptable.getWindow().clearComputedStyles();
+            scriptable.getWindow().clearComputedStylesDependingOn("hover");
         }
 
         return currentPage;
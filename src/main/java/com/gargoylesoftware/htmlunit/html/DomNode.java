@@ -16,6 +16,7 @@ package com.gargoylesoftware.htmlunit.html;
 
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.DOM_NORMALIZE_REMOVE_CHILDREN;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.QUERYSELECTORALL_NOT_IN_QUIRKS;
+import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.QUERYSELECTOR_CSS3_PSEUDO_REQUIRE_ATTACHED_NODE;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.XPATH_SELECTION_NAMESPACES;
 
 import java.io.IOException;
@@ -25,10 +26,10 @@ import java.io.Serializable;
 import java.io.StringWriter;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -44,8 +45,12 @@ import com.gargoylesoftware.css.parser.CSSErrorHandler;
 import com.gargoylesoftware.css.parser.CSSException;
 import com.gargoylesoftware.css.parser.CSSOMParser;
 import com.gargoylesoftware.css.parser.CSSParseException;
+import com.gargoylesoftware.css.parser.condition.Condition;
+import com.gargoylesoftware.css.parser.condition.Condition.ConditionType;
 import com.gargoylesoftware.css.parser.javacc.CSS3Parser;
+import com.gargoylesoftware.css.parser.selector.ElementSelector;
 import com.gargoylesoftware.css.parser.selector.Selector;
+import com.gargoylesoftware.css.parser.selector.Selector.SelectorType;
 import com.gargoylesoftware.css.parser.selector.SelectorList;
 import com.gargoylesoftware.htmlunit.BrowserVersion;
 import com.gargoylesoftware.htmlunit.BrowserVersionFeatures;
@@ -118,6 +123,28 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
     /** The name of the "element" property. Used when watching property change events. */
     public static final String PROPERTY_ELEMENT = "element";
 
+    /**
+     * The distance between the order labels of neighbor nodes after labeling a whole tree.
+     * Leaves room for about 32 insertions at the same position before the tree is labeled again
+     * and for 2^31 nodes per tree.
+     */
+    private static final long ORDER_LABEL_GAP = 1L << 32;
+
+    /** The maximum number of parsed selectors kept in {@link #SELECTOR_LISTS}. */
+    private static final int MAX_SELECTOR_LISTS = 500;
+
+    /**
+     * The parsed and validated selectors used by querySelector/querySelectorAll/matches,
+     * keyed by document mode and selector string; least recently used ones are removed first.
+     */
+    private static final Map<String, SelectorList> SELECTOR_LISTS
+        = new LinkedHashMap<String, SelectorList>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, SelectorList> eldest) {
+                return size() > MAX_SELECTOR_LISTS;
+            }
+        };
+
     /** The owning page of this node. */
     private SgmlPage page_;
 
@@ -169,14 +196,30 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
 
     private boolean attachedToPage_;
 
+    /** Incremented each time a node is added to or removed from the subtree of this node. */
+    private int domChangeVersion_;
+
+    /**
+     * The root of the labeled tree this node belongs to, {@code null} if the node has no valid label.
+     * Within one labeled tree the order labels are ascending in document order.
+     */
+    private transient DomNode orderRoot_;
+    private long orderLabel_;
+
+    /** Incremented each time the list of children of this node changes. */
+    private int childrenVersion_;
+    /** The index of this node, valid if {@link #indexVersion_} matches the version of the parent. */
+    private int index_;
+    private int indexVersion_;
+
+    /** Used for synchronization of the changes of the listeners, they are read without lock. */
     private transient Object listeners_lock_ = new Object();
 
-    /** The listeners which are to be notified of characterData change. */
-    private Collection<CharacterDataChangeListener> characterDataListeners_;
-    private List<CharacterDataChangeListener> characterDataListenersList_;
+    /** The listeners which are to be notified of characterData change; replaced by a copy on change. */
+    private volatile CharacterDataChangeListener[] characterDataListeners_;
 
-    private Collection<DomChangeListener> domListeners_;
-    private List<DomChangeListener> domListenersList_;
+    /** The listeners which are to be notified of DOM changes; replaced by a copy on change. */
+    private volatile DomChangeListener[] domListeners_;
     private Map<String, Object> userData_;
 
     /**
@@ -283,6 +326,17 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         scriptObject_ = scriptObject;
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns the JavaScript object that corresponds to this node without creating it.
+     *
+     * @return the JavaScript object, or {@code null} if it was not created so far
+     */
+    public Object getScriptableObjectOrNull() {
+        return scriptObject_;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -316,6 +370,21 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * @return this node's index within its parent's child nodes (zero-based)
      */
     public int getIndex() {
+        if (parent_ != null) {
+            // number all children at once, the next calls for the siblings are for free
+            final int version = parent_.childrenVersion_;
+            if (indexVersion_ != version) {
+                int index = 0;
+                for (DomNode child = parent_.firstChild_; child != null; child = child.nextSibling_) {
+                    child.index_ = index++;
+                    child.indexVersion_ = version;
+                }
+            }
+            if (indexVersion_ == version) {
+                return index_;
+            }
+        }
+
         int index = 0;
         for (DomNode n = previousSibling_; n != null && n.nextSibling_ != null; n = n.previousSibling_) {
             index++;
@@ -385,11 +454,17 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
     /** @param previous set the previousSibling field value */
     protected void setPreviousSibling(final DomNode previous) {
         previousSibling_ = previous;
+        if (parent_ != null) {
+            parent_.childrenVersion_++;
+        }
     }
 
     /** @param next set the nextSibling field value */
     protected void setNextSibling(final DomNode next) {
         nextSibling_ = next;
+        if (parent_ != null) {
+            parent_.childrenVersion_++;
+        }
     }
 
     /**
@@ -508,6 +583,23 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
             return 0; // strange, no constant available?
         }
 
+        final DomNode otherNode = (DomNode) other;
+        if (hasSameOrderRoot(otherNode)) {
+            if (orderLabel_ < otherNode.orderLabel_) {
+                if (isAncestorByOrderLabel(this, otherNode)) {
+                    return DOCUMENT_POSITION_CONTAINED_BY | DOCUMENT_POSITION_FOLLOWING;
+                }
+                return DOCUMENT_POSITION_FOLLOWING;
+            }
+            if (isAncestorByOrderLabel(otherNode, this)) {
+                if (otherNode.parent_ == null) {
+                    return DOCUMENT_POSITION_CONTAINS;
+                }
+                return DOCUMENT_POSITION_CONTAINS | DOCUMENT_POSITION_PRECEDING;
+            }
+            return DOCUMENT_POSITION_PRECEDING;
+        }
+
         // get ancestors of both
         final List<Node> myAncestors = getAncestors();
         final List<Node> otherAncestors = ((DomNode) other).getAncestors();
@@ -549,6 +641,148 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         return DOCUMENT_POSITION_PRECEDING;
     }
 
+    /**
+     * Compares the position of this node and the given node in the document order.
+     * This is faster than {@link #compareDocumentPosition(Node)} if only the order is of interest.
+     *
+     * @param other the node to compare with
+     * @return a negative value if this node is before the other node, a positive value if it is after the other node
+     *         (or an ancestor of it), {@code 0} if both are the same node
+     */
+    int compareDocumentOrder(final DomNode other) {
+        if (other == this) {
+            return 0;
+        }
+        if (hasSameOrderRoot(other)) {
+            return Long.compare(orderLabel_, other.orderLabel_);
+        }
+
+        final short relation = compareDocumentPosition(other);
+        if ((relation & DOCUMENT_POSITION_CONTAINS) != 0 || (relation & DOCUMENT_POSITION_PRECEDING) != 0) {
+            return 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the order labels of this node and the given node without checking them. The labels of nodes
+     * removed from a tree are kept, this can be used to find a node that was just removed in a list of
+     * nodes sorted by {@link #compareDocumentOrder(DomNode)}.
+     *
+     * @param other the node to compare with
+     * @return the result of comparing the labels
+     */
+    int compareOrderLabel(final DomNode other) {
+        return Long.compare(orderLabel_, other.orderLabel_);
+    }
+
+    /**
+     * Returns whether this node and the other node have valid order labels of the same tree.
+     * Labels the tree of this node if this has not been done yet.
+     */
+    private boolean hasSameOrderRoot(final DomNode other) {
+        if (orderRoot_ == null) {
+            DomNode root = this;
+            while (root.parent_ != null) {
+                root = root.parent_;
+            }
+            if (root.orderRoot_ == null) {
+                labelTree(root);
+            }
+        }
+        return orderRoot_ != null && orderRoot_ == other.orderRoot_;
+    }
+
+    /**
+     * Returns whether the ancestor is an ancestor of the node; both have to be labeled
+     * in the same tree and the label of the ancestor has to be smaller.
+     */
+    private static boolean isAncestorByOrderLabel(final DomNode ancestor, final DomNode node) {
+        // all ancestors between both nodes have labels between both labels
+        DomNode parent = node.parent_;
+        while (parent != null && parent.orderLabel_ > ancestor.orderLabel_) {
+            parent = parent.parent_;
+        }
+        return parent == ancestor;
+    }
+
+    /**
+     * Assigns new order labels to all nodes of the tree.
+     * @param root the root of the tree
+     */
+    private static void labelTree(final DomNode root) {
+        long label = 0;
+        root.orderRoot_ = root;
+        root.orderLabel_ = label;
+        for (final DomNode node : root.getDescendants()) {
+            label += ORDER_LABEL_GAP;
+            node.orderRoot_ = root;
+            node.orderLabel_ = label;
+        }
+    }
+
+    /**
+     * Assigns order labels to this node and its descendants after this node was added to
+     * a parent. The labels are taken from the gap between the labels of the nodes before and after
+     * the new nodes; if the gap is too small, the whole tree is labeled again.
+     */
+    private void updateOrderLabels() {
+        final DomNode root = parent_.orderRoot_;
+        if (root == null) {
+            if (orderRoot_ != null) {
+                orderRoot_ = null;
+                for (final DomNode descendant : getDescendants()) {
+                    descendant.orderRoot_ = null;
+                }
+            }
+            return;
+        }
+
+        DomNode before = parent_;
+        final DomNode previous = getPreviousSibling();
+        if (previous != null) {
+            before = previous;
+            for (DomNode last = before.getLastChild(); last != null; last = last.getLastChild()) {
+                before = last;
+            }
+        }
+
+        DomNode after = this;
+        while (after != null && after.nextSibling_ == null) {
+            after = after.parent_;
+        }
+        if (after != null) {
+            after = after.nextSibling_;
+        }
+
+        if (before.orderRoot_ != root || (after != null && after.orderRoot_ != root)) {
+            labelTree(root);
+            return;
+        }
+
+        int size = 1;
+        final Iterator<DomNode> descendants = getDescendants().iterator();
+        while (descendants.hasNext()) {
+            descendants.next();
+            size++;
+        }
+        final long upper = after == null ? Long.MAX_VALUE : after.orderLabel_;
+        final long step = Math.min(ORDER_LABEL_GAP, (upper - before.orderLabel_) / (size + 1));
+        if (step == 0) {
+            labelTree(root);
+            return;
+        }
+
+        long label = before.orderLabel_ + step;
+        orderRoot_ = root;
+        orderLabel_ = label;
+        for (final DomNode descendant : getDescendants()) {
+            label += step;
+            descendant.orderRoot_ = root;
+            descendant.orderLabel_ = label;
+        }
+    }
+
     /**
      * Gets the ancestors of the node.
      * @return a list of the ancestors with the root at the first position
@@ -735,6 +969,9 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
             // display: iterate top to bottom, because if a parent is display:none,
             // there's nothing that a child can do to override it
             final List<Node> ancestors = getAncestors();
+            if (isDisplayedByDefault(htmlPage, ancestors)) {
+                return true;
+            }
             final ArrayList<CSSStyleDeclaration> styles = new ArrayList<>(ancestors.size());
 
             for (final Node node : ancestors) {
@@ -770,6 +1007,33 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         return true;
     }
 
+    /**
+     * Returns {@code true} if the page has no style sheets and none of the given nodes has a style
+     * or a hidden attribute or is hidden by default. Then the nodes are displayed and there is no need
+     * to create the JavaScript objects of all of them to compute their styles.
+     * @param htmlPage the page
+     * @param ancestors the nodes
+     * @return {@code true} if the nodes are displayed, {@code false} if this is not known
+     */
+    private static boolean isDisplayedByDefault(final HtmlPage htmlPage, final List<Node> ancestors) {
+        for (final Node node : ancestors) {
+            if (node instanceof DomElement) {
+                final DomElement element = (DomElement) node;
+                if (element.hasAttribute("style") || element.hasAttribute("hidden")) {
+                    return false;
+                }
+                if (element instanceof HtmlElement
+                        && DisplayStyle.NONE == ((HtmlElement) element).getDefaultStyleDisplay()) {
+                    return false;
+                }
+            }
+        }
+
+        final List<DomElement> styles = htmlPage.getElementsByLocalName("style");
+        final List<DomElement> links = htmlPage.getElementsByLocalName("link");
+        return styles != null && styles.isEmpty() && links != null && links.isEmpty();
+    }
+
     /**
      * Returns {@code true} if nodes of this type can ever be displayed, {@code false} otherwise. Examples of nodes
      * that can never be displayed are <tt>&lt;head&gt;</tt>, <tt>&lt;meta&gt;</tt>, <tt>&lt;script&gt;</tt>, etc.
@@ -877,6 +1141,9 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         newnode.scriptObject_ = null;
         newnode.firstChild_ = null;
         newnode.attachedToPage_ = false;
+        newnode.orderRoot_ = null;
+        newnode.childrenVersion_ = 0;
+        newnode.indexVersion_ = 0;
 
         // if deep, clone the children too.
         if (deep) {
@@ -982,6 +1249,9 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
             firstChild_.previousSibling_ = node; // new last node
         }
         node.parent_ = this;
+        childrenVersion_++;
+        node.indexVersion_ = 0;
+        node.updateOrderLabels();
     }
 
     /**
@@ -1052,6 +1322,9 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         node.nextSibling_ = this;
         previousSibling_ = node;
         node.parent_ = parent_;
+        parent_.childrenVersion_++;
+        node.indexVersion_ = 0;
+        node.updateOrderLabels();
     }
 
     private void fireAddition(final DomNode domNode) {
@@ -1164,13 +1437,19 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         if (parent_ != null && this == parent_.getLastChild()) {
             parent_.firstChild_.previousSibling_ = previousSibling_;
         }
+        if (parent_ != null) {
+            parent_.childrenVersion_++;
+        }
 
         nextSibling_ = null;
         previousSibling_ = null;
         parent_ = null;
         attachedToPage_ = false;
+        orderRoot_ = null;
+        indexVersion_ = 0;
         for (DomNode descendant : getDescendants()) {
             descendant.attachedToPage_ = false;
+            descendant.orderRoot_ = null;
         }
     }
 
@@ -1236,6 +1515,11 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
             destination.basicAppend(child);
         }
         basicRemove();
+
+        final HtmlPage htmlPage = getHtmlPageOrNull();
+        if (htmlPage != null) {
+            htmlPage.resetLocalNameIndex();
+        }
     }
 
     /**
@@ -1654,6 +1938,20 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         incorrectnessListener.notify(message, this);
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns a counter that is incremented each time a node is added to or removed from this node
+     * or one of its descendants (the same changes a {@link DomChangeListener} registered at this node
+     * is notified about). Compare it with a previous value to find out if something computed from
+     * the descendants of this node is still valid, without registering a listener.
+     *
+     * @return the version of the subtree of this node
+     */
+    public int getDomChangeVersion() {
+        return domChangeVersion_;
+    }
+
     /**
      * Adds a {@link DomChangeListener} to the listener list. The listener is registered for
      * all descendants of this node.
@@ -1666,10 +1964,11 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
 
         synchronized (listeners_lock_) {
             if (domListeners_ == null) {
-                domListeners_ = new LinkedHashSet<>();
+                domListeners_ = new DomChangeListener[] {listener};
+            }
+            else {
+                domListeners_ = addListener(domListeners_, listener);
             }
-            domListeners_.add(listener);
-            domListenersList_ = null;
         }
     }
 
@@ -1685,8 +1984,7 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
 
         synchronized (listeners_lock_) {
             if (domListeners_ != null) {
-                domListeners_.remove(listener);
-                domListenersList_ = null;
+                domListeners_ = removeListener(domListeners_, listener);
             }
         }
     }
@@ -1700,7 +1998,8 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * @param event the DomChangeEvent to be propagated
      */
     protected void fireNodeAdded(final DomChangeEvent event) {
-        final List<DomChangeListener> listeners = safeGetDomListeners();
+        domChangeVersion_++;
+        final DomChangeListener[] listeners = domListeners_;
         if (listeners != null) {
             for (final DomChangeListener listener : listeners) {
                 listener.nodeAdded(event);
@@ -1723,10 +2022,11 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
 
         synchronized (listeners_lock_) {
             if (characterDataListeners_ == null) {
-                characterDataListeners_ = new LinkedHashSet<>();
+                characterDataListeners_ = new CharacterDataChangeListener[] {listener};
+            }
+            else {
+                characterDataListeners_ = addListener(characterDataListeners_, listener);
             }
-            characterDataListeners_.add(listener);
-            characterDataListenersList_ = null;
         }
     }
 
@@ -1742,8 +2042,7 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
 
         synchronized (listeners_lock_) {
             if (characterDataListeners_ != null) {
-                characterDataListeners_.remove(listener);
-                characterDataListenersList_ = null;
+                characterDataListeners_ = removeListener(characterDataListeners_, listener);
             }
         }
     }
@@ -1756,7 +2055,7 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * @param event the CharacterDataChangeEvent to be propagated
      */
     protected void fireCharacterDataChanged(final CharacterDataChangeEvent event) {
-        final List<CharacterDataChangeListener> listeners = safeGetCharacterDataListeners();
+        final CharacterDataChangeListener[] listeners = characterDataListeners_;
         if (listeners != null) {
             for (final CharacterDataChangeListener listener : listeners) {
                 listener.characterDataChanged(event);
@@ -1776,7 +2075,8 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * @param event the DomChangeEvent to be propagated
      */
     protected void fireNodeDeleted(final DomChangeEvent event) {
-        final List<DomChangeListener> listeners = safeGetDomListeners();
+        domChangeVersion_++;
+        final DomChangeListener[] listeners = domListeners_;
         if (listeners != null) {
             for (final DomChangeListener listener : listeners) {
                 listener.nodeDeleted(event);
@@ -1787,28 +2087,36 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         }
     }
 
-    private List<DomChangeListener> safeGetDomListeners() {
-        synchronized (listeners_lock_) {
-            if (domListeners_ == null) {
-                return null;
-            }
-            if (domListenersList_ == null) {
-                domListenersList_ = new ArrayList<>(domListeners_);
+    /**
+     * Returns a copy of the listeners with the given listener appended,
+     * or the listeners itself if they already contain it.
+     */
+    private static <T> T[] addListener(final T[] listeners, final T listener) {
+        for (final T existing : listeners) {
+            if (existing.equals(listener)) {
+                return listeners;
             }
-            return domListenersList_;
         }
+        final T[] result = Arrays.copyOf(listeners, listeners.length + 1);
+        result[listeners.length] = listener;
+        return result;
     }
 
-    private List<CharacterDataChangeListener> safeGetCharacterDataListeners() {
-        synchronized (listeners_lock_) {
-            if (characterDataListeners_ == null) {
-                return null;
-            }
-            if (characterDataListenersList_ == null) {
-                characterDataListenersList_ = new ArrayList<>(characterDataListeners_);
+    /**
+     * Returns a copy of the listeners without the given listener, {@code null} if no listener is left.
+     */
+    private static <T> T[] removeListener(final T[] listeners, final T listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].equals(listener)) {
+                if (listeners.length == 1) {
+                    return null;
+                }
+                final T[] result = Arrays.copyOf(listeners, listeners.length - 1);
+                System.arraycopy(listeners, i + 1, result, i, listeners.length - i - 1);
+                return result;
             }
-            return characterDataListenersList_;
         }
+        return listeners;
     }
 
     /**
@@ -1818,28 +2126,80 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * @return list of all found nodes
      */
     public DomNodeList<DomNode> querySelectorAll(final String selectors) {
+        final List<DomNode> elements = new ArrayList<>();
+        querySelectorAll(selectors, elements, false);
+        return new StaticDomNodeList(elements);
+    }
+
+    /**
+     * Collects the descendants matching the given selectors in document order.
+     * @param selectors one or more CSS selectors separated by commas
+     * @param elements the list to add the found nodes to
+     * @param firstOnly if {@code true} the search stops at the first match
+     */
+    private void querySelectorAll(final String selectors, final List<DomNode> elements, final boolean firstOnly) {
         try {
             final BrowserVersion browserVersion = getPage().getWebClient().getBrowserVersion();
             final SelectorList selectorList = getSelectorList(selectors, browserVersion);
+            if (selectorList == null) {
+                return;
+            }
+
+            // the id map of the page is much faster than walking the whole subtree
+            final String id = getIdSelector(selectorList);
+            final SgmlPage page = getPage();
+            if (id != null && page instanceof HtmlPage && (this == page || isAttachedToPage())) {
+                for (final DomElement element : ((HtmlPage) page).getElementsById(id)) {
+                    if (element != this && id.equals(element.getId()) && isAncestorOf(element)) {
+                        elements.add(element);
+                        if (firstOnly) {
+                            return;
+                        }
+                    }
+                }
+                return;
+            }
 
-            final List<DomNode> elements = new ArrayList<>();
-            if (selectorList != null) {
-                for (final DomElement child : getDomElementDescendants()) {
-                    for (Selector selector : selectorList) {
-                        if (CSSStyleSheet.selects(browserVersion, selector, child, null, true)) {
-                            elements.add(child);
-                            break;
+            for (final DomElement child : getDomElementDescendants()) {
+                for (Selector selector : selectorList) {
+                    if (CSSStyleSheet.selects(browserVersion, selector, child, null, true)) {
+                        elements.add(child);
+                        if (firstOnly) {
+                            return;
                         }
+                        break;
                     }
                 }
             }
-            return new StaticDomNodeList(elements);
         }
         catch (final IOException e) {
             throw new CSSException("Error parsing CSS selectors from '" + selectors + "': " + e.getMessage());
         }
     }
 
+    /**
+     * Returns the id if the given selector list is a plain id selector like <tt>#foo</tt>.
+     * @param selectorList the selector list
+     * @return the id or {@code null}
+     */
+    private static String getIdSelector(final SelectorList selectorList) {
+        if (selectorList.size() != 1) {
+            return null;
+        }
+        final Selector selector = selectorList.get(0);
+        if (selector.getSelectorType() != SelectorType.ELEMENT_NODE_SELECTOR) {
+            return null;
+        }
+        final ElementSelector elementSelector = (ElementSelector) selector;
+        final List<Condition> conditions = elementSelector.getConditions();
+        if (elementSelector.getLocalNameLowerCase() != null
+                || conditions == null || conditions.size() != 1
+                || conditions.get(0).getConditionType() != ConditionType.ID_CONDITION) {
+            return null;
+        }
+        return conditions.get(0).getValue();
+    }
+
     /**
      * Returns the {@link SelectorList}.
      * @param selectors the selectors
@@ -1849,6 +2209,27 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      */
     protected SelectorList getSelectorList(final String selectors, final BrowserVersion browserVersion)
             throws IOException {
+        int documentMode = 9;
+        if (browserVersion.hasFeature(QUERYSELECTORALL_NOT_IN_QUIRKS)) {
+            final Object sobj = getPage().getScriptableObject();
+            if (sobj instanceof HTMLDocument) {
+                documentMode = ((HTMLDocument) sobj).getDocumentMode();
+            }
+        }
+
+        // the validation depends on this node only for detached nodes without children
+        final boolean cacheable = isAttachedToPage() || hasChildNodes()
+                || !browserVersion.hasFeature(QUERYSELECTOR_CSS3_PSEUDO_REQUIRE_ATTACHED_NODE);
+        final String key = documentMode + " " + selectors;
+        if (cacheable) {
+            synchronized (SELECTOR_LISTS) {
+                final SelectorList cached = SELECTOR_LISTS.get(key);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        }
+
         final CSSOMParser parser = new CSSOMParser(new CSS3Parser());
         final CheckErrorHandler errorHandler = new CheckErrorHandler();
         parser.setErrorHandler(errorHandler);
@@ -1860,15 +2241,13 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         }
 
         if (selectorList != null) {
-            int documentMode = 9;
-            if (browserVersion.hasFeature(QUERYSELECTORALL_NOT_IN_QUIRKS)) {
-                final Object sobj = getPage().getScriptableObject();
-                if (sobj instanceof HTMLDocument) {
-                    documentMode = ((HTMLDocument) sobj).getDocumentMode();
-                }
-            }
             CSSStyleSheet.validateSelectors(selectorList, documentMode, this);
 
+            if (cacheable) {
+                synchronized (SELECTOR_LISTS) {
+                    SELECTOR_LISTS.put(key, selectorList);
+                }
+            }
         }
         return selectorList;
     }
@@ -1881,9 +2260,10 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      */
     @SuppressWarnings("unchecked")
     public <N extends DomNode> N querySelector(final String selectors) {
-        final DomNodeList<DomNode> list = querySelectorAll(selectors);
-        if (!list.isEmpty()) {
-            return (N) list.get(0);
+        final List<DomNode> elements = new ArrayList<>(1);
+        querySelectorAll(selectors, elements, true);
+        if (!elements.isEmpty()) {
+            return (N) elements.get(0);
         }
         return null;
     }
@@ -247,6 +247,7 @@ public final class HTMLParser {
             }
             final XMLInputSource in = new XMLInputSource(null, url.toString(), null, content, encoding);
 
+            page.prefetchSubresources();
             page.registerParsingStart();
             try {
                 domBuilder.parse(in);
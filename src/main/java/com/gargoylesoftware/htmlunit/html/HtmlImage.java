@@ -527,11 +527,7 @@ public class HtmlImage extends HtmlElement {
                 if (!(webClient.getBrowserVersion().hasFeature(HTMLIMAGE_BLANK_SRC_AS_EMPTY)
                         && StringUtils.isBlank(src))) {
                     final URL url = page.getFullyQualifiedUrl(src);
-                    final String accept = webClient.getBrowserVersion().getImgAcceptHeader();
-                    final WebRequest request = new WebRequest(url, accept);
-                    request.setCharset(page.getCharset());
-                    request.setAdditionalHeader(HttpHeader.REFERER, page.getUrl().toExternalForm());
-                    imageWebResponse_ = webClient.loadWebResponse(request);
+                    imageWebResponse_ = page.loadSubresource(createWebRequest(page, url));
                 }
             }
 
@@ -548,6 +544,20 @@ public class HtmlImage extends HtmlElement {
         }
     }
 
+    /**
+     * Creates the request to download an image.
+     * @param page the page
+     * @param url the URL of the image
+     * @return the request
+     */
+    static WebRequest createWebRequest(final HtmlPage page, final URL url) {
+        final String accept = page.getWebClient().getBrowserVersion().getImgAcceptHeader();
+        final WebRequest request = new WebRequest(url, accept);
+        request.setCharset(page.getCharset());
+        request.setAdditionalHeader(HttpHeader.REFERER, page.getUrl().toExternalForm());
+        return request;
+    }
+
     private void readImageIfNeeded() throws IOException {
         downloadImageIfNeeded();
         if (imageData_ == null) {
@@ -193,12 +193,11 @@ public class HtmlLink extends HtmlElement {
      */
     public WebResponse getWebResponse(final boolean downloadIfNeeded, WebRequest request) throws IOException {
         if (downloadIfNeeded && cachedWebResponse_ == null) {
-            final WebClient webclient = getPage().getWebClient();
             if (null == request) {
                 request = getWebRequest();
             }
             try {
-                cachedWebResponse_ = webclient.loadWebResponse(request);
+                cachedWebResponse_ = ((HtmlPage) getPage()).loadSubresource(request);
                 final int statusCode = cachedWebResponse_.getStatusCode();
                 final boolean successful = statusCode >= HttpStatus.SC_OK
                                                 && statusCode < HttpStatus.SC_MULTIPLE_CHOICES;
@@ -225,7 +224,16 @@ public class HtmlLink extends HtmlElement {
     public WebRequest getWebRequest() throws MalformedURLException {
         final HtmlPage page = (HtmlPage) getPage();
         final URL url = page.getFullyQualifiedUrl(getHrefAttribute());
+        return createWebRequest(page, url);
+    }
 
+    /**
+     * Creates the request to download a linked stylesheet.
+     * @param page the page
+     * @param url the URL of the stylesheet
+     * @return the request
+     */
+    static WebRequest createWebRequest(final HtmlPage page, final URL url) {
         final String accept = page.getWebClient().getBrowserVersion().getCssAcceptHeader();
         final WebRequest request = new WebRequest(url, accept);
         // use the page encoding even if this is a GET requests
@@ -43,6 +43,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -155,6 +156,7 @@ public class HtmlPage extends SgmlPage {
             = Collections.synchronizedMap(new HashMap<String, SortedSet<DomElement>>());
     private Map<String, SortedSet<DomElement>> nameMap_
             = Collections.synchronizedMap(new HashMap<String, SortedSet<DomElement>>());
+    private transient LocalNameIndex localNameIndex_ = new LocalNameIndex(this);
 
     private SortedSet<BaseFrameElement> frameElements_ = new TreeSet<>(documentPositionComparator);
     private int parserCount_;
@@ -169,6 +171,7 @@ public class HtmlPage extends SgmlPage {
     private List<AutoCloseable> autoCloseableList_;
     private ElementFromPointHandler elementFromPointHandler_;
     private DomElement elementWithFocus_;
+    private transient volatile SubresourcePrefetcher prefetcher_;
     private List<Range> selectionRanges_ = new ArrayList<>(3);
 
     private static final List<String> TABBABLE_TAGS = Arrays.asList(HtmlAnchor.TAG_NAME, HtmlArea.TAG_NAME,
@@ -179,15 +182,7 @@ public class HtmlPage extends SgmlPage {
     static class DocumentPositionComparator implements Comparator<DomElement>, Serializable {
         @Override
         public int compare(final DomElement elt1, final DomElement elt2) {
-            final short relation = elt1.compareDocumentPosition(elt2);
-            if (relation == 0) {
-                return 0; // same node
-            }
-            if ((relation & DOCUMENT_POSITION_CONTAINS) != 0 || (relation & DOCUMENT_POSITION_PRECEDING) != 0) {
-                return 1;
-            }
-
-            return -1;
+            return elt1.compareDocumentOrder(elt2);
         }
     }
 
@@ -262,6 +257,7 @@ public class HtmlPage extends SgmlPage {
 
         executeDeferredScriptsIfNeeded();
         setReadyStateOnDeferredScriptsIfNeeded();
+        discardPrefetchedSubresources();
 
         // frame initialization has a different order
         boolean isFrameWindow = enclosingWindow instanceof FrameWindow;
@@ -328,6 +324,7 @@ public class HtmlPage extends SgmlPage {
             return;
         }
         cleaning_ = true;
+        discardPrefetchedSubresources();
         super.cleanUp();
         executeEventHandlersIfNeeded(Event.TYPE_UNLOAD);
         deregisterFramesIfNeeded();
@@ -604,6 +601,32 @@ public class HtmlPage extends SgmlPage {
         return null;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DomNodeList<DomElement> getElementsByTagName(final String tagName) {
+        if ("*".equals(tagName) || tagName.indexOf(':') != -1) {
+            return super.getElementsByTagName(tagName);
+        }
+        return new AbstractDomNodeList<DomElement>(this) {
+            @Override
+            protected List<DomElement> provideElements() {
+                final List<DomElement> candidates = localNameIndex_.get(tagName);
+                if (!hasCaseSensitiveTagNames()) {
+                    return candidates;
+                }
+                final List<DomElement> res = new ArrayList<>(candidates.size());
+                for (final DomElement elem : candidates) {
+                    if (elem.getLocalName().equals(tagName)) {
+                        res.add(elem);
+                    }
+                }
+                return res;
+            }
+        };
+    }
+
     /**
      * Returns the {@link HtmlAnchor} with the specified name.
      *
@@ -1018,20 +1041,13 @@ public class HtmlPage extends SgmlPage {
     private Object loadJavaScriptFromUrl(final URL url, final Charset scriptCharset) throws IOException,
         FailingHttpStatusCodeException {
 
-        final WebRequest referringRequest = getWebResponse().getWebRequest();
-
         final WebClient client = getWebClient();
-        final WebRequest request = new WebRequest(url);
-        // copy all headers from the referring request
-        request.setAdditionalHeaders(new HashMap<>(referringRequest.getAdditionalHeaders()));
-        // at least overwrite this headers
-        request.setAdditionalHeader(HttpHeader.ACCEPT, client.getBrowserVersion().getScriptAcceptHeader());
-        request.setAdditionalHeader(HttpHeader.REFERER, referringRequest.getUrl().toString());
+        final WebRequest request = createScriptRequest(url);
 
         // our cache is a bit strange;
         // loadWebResponse check the cache for the web response
         // AND also fixes the request url for the following cache lookups
-        final WebResponse response = client.loadWebResponse(request);
+        final WebResponse response = loadSubresource(request);
 
         // now we can look into the cache with the fixed request for
         // a cached script
@@ -1113,6 +1129,62 @@ public class HtmlPage extends SgmlPage {
         return null;
     }
 
+    /**
+     * Creates the request to download an external script.
+     * @param url the URL of the script
+     * @return the request
+     */
+    WebRequest createScriptRequest(final URL url) {
+        final WebRequest referringRequest = getWebResponse().getWebRequest();
+
+        final WebRequest request = new WebRequest(url);
+        // copy all headers from the referring request
+        request.setAdditionalHeaders(new HashMap<>(referringRequest.getAdditionalHeaders()));
+        // at least overwrite this headers
+        request.setAdditionalHeader(HttpHeader.ACCEPT, getWebClient().getBrowserVersion().getScriptAcceptHeader());
+        request.setAdditionalHeader(HttpHeader.REFERER, referringRequest.getUrl().toString());
+        return request;
+    }
+
+    /**
+     * Starts the prefetching of the external scripts, stylesheets and images
+     * of this page, if enabled by {@link com.gargoylesoftware.htmlunit.WebClientOptions#setPrefetchThreads(int)}.
+     */
+    void prefetchSubresources() {
+        final ExecutorService executor = getWebClient().getPrefetchExecutor();
+        if (executor != null) {
+            final SubresourcePrefetcher prefetcher = new SubresourcePrefetcher(this, executor);
+            prefetcher_ = prefetcher;
+            prefetcher.scan(getWebResponse().getContentAsString());
+        }
+    }
+
+    /**
+     * Loads a subresource (script, stylesheet, image) of this page; uses the prefetched
+     * response if available.
+     * @param request the request
+     * @return the response
+     * @throws IOException if an IO problem occurs
+     */
+    WebResponse loadSubresource(final WebRequest request) throws IOException {
+        final SubresourcePrefetcher prefetcher = prefetcher_;
+        if (prefetcher != null) {
+            final WebResponse response = prefetcher.take(request);
+            if (response != null) {
+                return response;
+            }
+        }
+        return getWebClient().loadWebResponse(request);
+    }
+
+    private void discardPrefetchedSubresources() {
+        final SubresourcePrefetcher prefetcher = prefetcher_;
+        if (prefetcher != null) {
+            prefetcher_ = null;
+            prefetcher.discard();
+        }
+    }
+
     /**
      * Returns the title of this page or an empty string if the title wasn't specified.
      *
@@ -1723,6 +1795,7 @@ public class HtmlPage extends SgmlPage {
     void notifyNodeAdded(final DomNode node) {
         if (node instanceof DomElement) {
             addMappedElement((DomElement) node, true);
+            localNameIndex_.added((DomElement) node);
 
             if (node instanceof BaseFrameElement) {
                 frameElements_.add((BaseFrameElement) node);
@@ -1746,9 +1819,11 @@ public class HtmlPage extends SgmlPage {
      * @param node the node that has just been removed from the tree
      */
     void notifyNodeRemoved(final DomNode node) {
+        if (node instanceof DomElement) {
+            localNameIndex_.removed((DomElement) node);
+            removeMappedElement((DomElement) node, true, true);
+        }
         if (node instanceof HtmlElement) {
-            removeMappedElement((HtmlElement) node, true, true);
-
             if (node instanceof BaseFrameElement) {
                 frameElements_.remove(node);
             }
@@ -1764,6 +1839,31 @@ public class HtmlPage extends SgmlPage {
         }
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns the elements of this page with the given local name (case insensitive)
+     * in document order. The result is taken from an index and is a new list that
+     * can be modified by the caller.
+     *
+     * @param localName the local name
+     * @return the elements or {@code null} if the index can't be used for this name
+     */
+    public List<DomElement> getElementsByLocalName(final String localName) {
+        if (localName.indexOf(':') != -1) {
+            return null;
+        }
+        return localNameIndex_.get(localName);
+    }
+
+    /**
+     * Drops the local name index; has to be called if elements are moved
+     * without notification of this page.
+     */
+    void resetLocalNameIndex() {
+        localNameIndex_.reset();
+    }
+
     /**
      * Adds an element to the ID and name maps, if necessary.
      * @param element the element to be added to the ID and name maps
@@ -1835,7 +1935,7 @@ public class HtmlPage extends SgmlPage {
      * Removes an element from the ID and name maps, if necessary.
      * @param element the element to be removed from the ID and name maps
      */
-    void removeMappedElement(final HtmlElement element) {
+    void removeMappedElement(final DomElement element) {
         removeMappedElement(element, false, false);
     }
 
@@ -1964,6 +2064,7 @@ public class HtmlPage extends SgmlPage {
 
         result.idMap_ = Collections.synchronizedMap(new HashMap<String, SortedSet<DomElement>>());
         result.nameMap_ = Collections.synchronizedMap(new HashMap<String, SortedSet<DomElement>>());
+        result.localNameIndex_ = new LocalNameIndex(result);
 
         return result;
     }
@@ -2551,6 +2652,7 @@ public class HtmlPage extends SgmlPage {
 
     private void readObject(final ObjectInputStream ois) throws ClassNotFoundException, IOException {
         ois.defaultReadObject();
+        localNameIndex_ = new LocalNameIndex(this);
         final String charsetName = (String) ois.readObject();
         if (charsetName != null) {
             originalCharset_ = Charset.forName(charsetName);
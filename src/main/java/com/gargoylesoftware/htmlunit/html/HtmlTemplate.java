@@ -70,5 +70,10 @@ public class HtmlTemplate extends HtmlElement {
             child.basicRemove();
             domDocumentFragment_.appendChild(child);
         }
+
+        final HtmlPage htmlPage = getHtmlPageOrNull();
+        if (htmlPage != null) {
+            htmlPage.resetLocalNameIndex();
+        }
     }
 }
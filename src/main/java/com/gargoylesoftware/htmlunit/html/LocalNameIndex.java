@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.html;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the elements of an {@link HtmlPage} by their local name (case insensitive).
+ *
+ * <p>The index is built on first use by a single walk over the document, the elements of each
+ * name are kept in document order. Added elements are sorted in by a binary search using
+ * {@link DomNode#compareDocumentOrder(DomNode)}; removed elements are searched by their (kept)
+ * order labels.</p>
+ *
+ * <p>All access has to be synchronized on the index.</p>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class LocalNameIndex {
+
+    private final HtmlPage page_;
+
+    /** The elements per key in document order, {@code null} if not built. */
+    private Map<String, List<DomElement>> elements_;
+
+    /**
+     * Creates a new index.
+     * @param page the page
+     */
+    LocalNameIndex(final HtmlPage page) {
+        page_ = page;
+    }
+
+    /**
+     * Returns the elements of the page with the given local name.
+     * @param localName the local name
+     * @return the elements in document order
+     */
+    synchronized List<DomElement> get(final String localName) {
+        if (elements_ == null) {
+            build();
+        }
+
+        final List<DomElement> elements = elements_.get(toKey(localName));
+        if (elements == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(elements);
+    }
+
+    /**
+     * Has to be called when an element (and its descendants) was added to the page.
+     * @param element the element
+     */
+    synchronized void added(final DomElement element) {
+        if (elements_ == null) {
+            return;
+        }
+        add(element);
+        for (final DomElement descendant : element.getDomElementDescendants()) {
+            add(descendant);
+        }
+    }
+
+    /**
+     * Has to be called when an element (and its descendants) was removed from the page.
+     * @param element the element
+     */
+    synchronized void removed(final DomElement element) {
+        if (elements_ == null) {
+            return;
+        }
+        remove(element);
+        for (final DomElement descendant : element.getDomElementDescendants()) {
+            remove(descendant);
+        }
+    }
+
+    /**
+     * Forgets everything; has to be called if elements were moved without notification.
+     */
+    synchronized void reset() {
+        elements_ = null;
+    }
+
+    private void add(final DomElement element) {
+        final List<DomElement> elements
+                = elements_.computeIfAbsent(toKey(element.getLocalName()), k -> new ArrayList<>());
+        final int index = indexOf(elements, element, false);
+        if (index < 0) {
+            elements.add(-index - 1, element);
+        }
+    }
+
+    private void remove(final DomElement element) {
+        final List<DomElement> elements = elements_.get(toKey(element.getLocalName()));
+        if (elements != null) {
+            final int index = indexOf(elements, element, true);
+            if (index >= 0 && elements.get(index) == element) {
+                elements.remove(index);
+            }
+            else {
+                // should not happen, but don't keep a removed element
+                elements.remove(element);
+            }
+        }
+    }
+
+    /**
+     * Binary search for the element in the list.
+     * @param removed whether the element was just removed from the page; only the labels are compared then
+     * @return the index of the element or <tt>(-(insertion point) - 1)</tt>
+     */
+    private static int indexOf(final List<DomElement> elements, final DomElement element, final boolean removed) {
+        int low = 0;
+        int high = elements.size() - 1;
+
+        // elements are usually appended
+        if (high >= 0 && compare(elements.get(high), element, removed) < 0) {
+            return -(high + 1) - 1;
+        }
+
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = compare(elements.get(mid), element, removed);
+            if (cmp < 0) {
+                low = mid + 1;
+            }
+            else if (cmp > 0) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int compare(final DomElement element, final DomElement other, final boolean removed) {
+        if (removed) {
+            return element.compareOrderLabel(other);
+        }
+        return element.compareDocumentOrder(other);
+    }
+
+    private void build() {
+        final Map<String, List<DomElement>> elements = new HashMap<>();
+        for (final DomElement element : page_.getDomElementDescendants()) {
+            elements.computeIfAbsent(toKey(element.getLocalName()), k -> new ArrayList<>()).add(element);
+        }
+        elements_ = elements;
+    }
+
+    /**
+     * Two names have the same key if {@link String#equalsIgnoreCase(String)} is {@code true} for them.
+     */
+    private static String toKey(final String name) {
+        final char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+}
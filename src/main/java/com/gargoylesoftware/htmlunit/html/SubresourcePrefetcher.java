@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.html;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.text.StringEscapeUtils;
+
+import com.gargoylesoftware.htmlunit.HttpMethod;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+
+/**
+ * A simple preload scanner. Before an html page is parsed, the content is scanned for
+ * external scripts, stylesheets and images; the downloads are started in parallel using
+ * {@link WebClient#getPrefetchExecutor()}. When the parser later needs one of these
+ * resources, the prefetched response is used instead of doing the request again.
+ *
+ * <p>The scan is only a guess; a resource that is not needed (e.g. because the reference
+ * is part of a script) is simply discarded. Requests that don't match exactly (same url
+ * and same headers) are done the usual way.</p>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class SubresourcePrefetcher {
+
+    private static final Log LOG = LogFactory.getLog(SubresourcePrefetcher.class);
+
+    private static final Pattern COMMENT_PATTERN = Pattern.compile("<!--.*?-->", Pattern.DOTALL);
+    private static final Pattern TAG_PATTERN =
+            Pattern.compile("<(script|link|img|base)\\b([^>]*)>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ATTRIBUTE_PATTERN =
+            Pattern.compile("([^\\s=/>]+)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s>]+))");
+
+    private final HtmlPage page_;
+    private final ExecutorService executor_;
+
+    /** The started downloads by url; synchronized on itself, discard() may be called from another thread. */
+    private final Map<String, Prefetch> prefetches_ = new HashMap<>();
+
+    /** Set by {@link #discard()}, no more downloads are started; guarded by {@link #prefetches_}. */
+    private boolean discarded_;
+
+    /**
+     * A started download. The download and {@link #discard()} decide under the lock of
+     * {@link #prefetches_} which of them cleans up the response, so this is done exactly once.
+     */
+    private static final class Prefetch {
+        private final WebRequest request_;
+        private final Map<String, String> headers_;
+        private Future<WebResponse> response_;
+        /** The response, set by the download if it finished before the prefetch was discarded. */
+        private WebResponse loaded_;
+        /** Set if the prefetch was discarded; a download finishing later cleans up itself. */
+        private boolean discarded_;
+
+        Prefetch(final WebRequest request) {
+            request_ = request;
+            headers_ = new HashMap<>(request.getAdditionalHeaders());
+        }
+    }
+
+    /**
+     * Ctor.
+     * @param page the page
+     * @param executor the executor to do the downloads
+     */
+    SubresourcePrefetcher(final HtmlPage page, final ExecutorService executor) {
+        page_ = page;
+        executor_ = executor;
+    }
+
+    /**
+     * Scans the given html for subresources and starts the downloads.
+     * @param html the content of the page
+     */
+    void scan(final String html) {
+        final WebClient webClient = page_.getWebClient();
+        final boolean javaScriptEnabled = webClient.getOptions().isJavaScriptEnabled();
+        final boolean cssEnabled = webClient.getOptions().isCssEnabled();
+        final boolean downloadImages = webClient.getOptions().isDownloadImages();
+
+        URL baseUrl = page_.getUrl();
+        final Matcher tagMatcher = TAG_PATTERN.matcher(COMMENT_PATTERN.matcher(html).replaceAll(""));
+        while (tagMatcher.find()) {
+            final String tag = tagMatcher.group(1).toLowerCase(Locale.ROOT);
+            final Map<String, String> attributes = parseAttributes(tagMatcher.group(2));
+            try {
+                switch (tag) {
+                    case "base":
+                        final String href = attributes.get("href");
+                        if (href != null) {
+                            baseUrl = WebClient.expandUrl(baseUrl, href);
+                        }
+                        break;
+
+                    case "script":
+                        final String src = attributes.get("src");
+                        if (javaScriptEnabled && src != null) {
+                            prefetch(page_.createScriptRequest(WebClient.expandUrl(baseUrl, src)));
+                        }
+                        break;
+
+                    case "link":
+                        final String rel = attributes.get("rel");
+                        final String linkHref = attributes.get("href");
+                        if (cssEnabled && linkHref != null
+                                && rel != null && "stylesheet".equalsIgnoreCase(rel.trim())) {
+                            prefetch(HtmlLink.createWebRequest(page_, WebClient.expandUrl(baseUrl, linkHref)));
+                        }
+                        break;
+
+                    case "img":
+                        final String imgSrc = attributes.get("src");
+                        if (downloadImages && imgSrc != null && !imgSrc.trim().isEmpty()) {
+                            prefetch(HtmlImage.createWebRequest(page_, WebClient.expandUrl(baseUrl, imgSrc)));
+                        }
+                        break;
+
+                    default:
+                }
+            }
+            catch (final MalformedURLException e) {
+                // ignore, the parser will report this later if the resource is really used
+            }
+        }
+    }
+
+    private static Map<String, String> parseAttributes(final String attributes) {
+        final Map<String, String> result = new HashMap<>();
+        final Matcher matcher = ATTRIBUTE_PATTERN.matcher(attributes);
+        while (matcher.find()) {
+            final String name = matcher.group(1).toLowerCase(Locale.ROOT);
+            String value = matcher.group(2);
+            if (value == null) {
+                value = matcher.group(3);
+            }
+            if (value == null) {
+                value = matcher.group(4);
+            }
+            // the first one wins, like in the parser
+            if (!result.containsKey(name)) {
+                result.put(name, StringEscapeUtils.unescapeHtml4(value).trim());
+            }
+        }
+        return result;
+    }
+
+    private void prefetch(final WebRequest request) {
+        final String protocol = request.getUrl().getProtocol();
+        if (!"http".equals(protocol) && !"https".equals(protocol)) {
+            return;
+        }
+
+        final String key = request.getUrl().toExternalForm();
+        synchronized (prefetches_) {
+            if (discarded_ || prefetches_.containsKey(key)) {
+                return;
+            }
+
+            final WebClient webClient = page_.getWebClient();
+            final Prefetch prefetch = new Prefetch(request);
+            try {
+                prefetch.response_ = executor_.submit(() -> {
+                    final WebResponse webResponse = webClient.loadWebResponse(request);
+                    synchronized (prefetches_) {
+                        if (!prefetch.discarded_) {
+                            prefetch.loaded_ = webResponse;
+                            return webResponse;
+                        }
+                    }
+                    cleanUp(webClient, request, webResponse);
+                    return webResponse;
+                });
+                prefetches_.put(key, prefetch);
+            }
+            catch (final RejectedExecutionException e) {
+                LOG.warn("Prefetching of '" + key + "' rejected.", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the prefetched response for the given request, if there is one. The prefetched
+     * response is only used once.
+     *
+     * @param request the request
+     * @return the response or {@code null} if the request has to be done
+     */
+    WebResponse take(final WebRequest request) {
+        if (HttpMethod.GET != request.getHttpMethod()) {
+            return null;
+        }
+
+        final Prefetch prefetch;
+        synchronized (prefetches_) {
+            prefetch = prefetches_.get(request.getUrl().toExternalForm());
+            if (prefetch == null || !prefetch.headers_.equals(request.getAdditionalHeaders())) {
+                return null;
+            }
+            prefetches_.remove(request.getUrl().toExternalForm());
+        }
+
+        try {
+            final WebResponse response = prefetch.response_.get();
+            // loadWebResponse() fixes the url of the request, the caller needs this for the cache lookup
+            request.setUrl(prefetch.request_.getUrl());
+            return response;
+        }
+        catch (final ExecutionException e) {
+            // do the request again; this time the error is reported the usual way
+            return null;
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Discards all prefetched responses not used so far.
+     */
+    void discard() {
+        final WebClient webClient = page_.getWebClient();
+        synchronized (prefetches_) {
+            discarded_ = true;
+            for (final Prefetch prefetch : prefetches_.values()) {
+                prefetch.discarded_ = true;
+                if (prefetch.loaded_ != null) {
+                    cleanUp(webClient, prefetch.request_, prefetch.loaded_);
+                }
+                else {
+                    // running downloads are interrupted or clean up themselves, never wait for them
+                    prefetch.response_.cancel(true);
+                }
+            }
+            prefetches_.clear();
+        }
+    }
+
+    /**
+     * Cleans up a response not used by the page. A response served from the cache shares its
+     * content with the cached one; the lookup has no side effects on the cache statistics.
+     */
+    private static void cleanUp(final WebClient webClient, final WebRequest request, final WebResponse response) {
+        if (!webClient.getCache().containsEntry(request)) {
+            response.cleanUp();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.html.xpath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.gargoylesoftware.htmlunit.SgmlPage;
+import com.gargoylesoftware.htmlunit.html.DomAttr;
+import com.gargoylesoftware.htmlunit.html.DomElement;
+import com.gargoylesoftware.htmlunit.html.DomNode;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.html.XHtmlPage;
+
+/**
+ * Evaluates some simple and very common XPath expressions directly on the dom tree,
+ * without the overhead of Xalan. Supported are absolute location paths made of element
+ * name tests (or <tt>*</tt>) with at most one predicate each, where the predicate is a
+ * position or an attribute value comparison; e.g. <tt>//div[@id='foo']</tt>,
+ * <tt>//*[@name="bar"]</tt> or <tt>/html/body/div[2]</tt>.
+ * Only the first step may use the descendant shortcut <tt>//</tt>.
+ *
+ * <p>All other expressions are left to Xalan.</p>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class SimpleXPathEvaluator {
+
+    private static final String NAME = "[a-zA-Z_][\\w\\-\\.]*";
+    private static final String STEP = "(//?)(\\*|" + NAME + ")"
+            + "(?:\\[(?:([1-9]\\d{0,6})|@(" + NAME + ")\\s*=\\s*(?:'([^']*)'|\"([^\"]*)\"))\\])?";
+
+    private static final Pattern PATH_PATTERN = Pattern.compile("(?:" + STEP + ")+");
+    private static final Pattern STEP_PATTERN = Pattern.compile(STEP);
+
+    /**
+     * One step of the location path.
+     */
+    private static final class Step {
+        private final boolean descendant_;
+        private final String name_;
+        private final int position_;
+        private final String attributeName_;
+        private final String attributeValue_;
+
+        Step(final boolean descendant, final String name, final int position,
+                final String attributeName, final String attributeValue) {
+            descendant_ = descendant;
+            name_ = name;
+            position_ = position;
+            attributeName_ = attributeName;
+            attributeValue_ = attributeValue;
+        }
+
+        boolean matches(final DomElement element) {
+            // during xpath processing, html elements of html pages have no namespace
+            if (name_ != null && (!name_.equals(element.getLocalName()) || element.getNamespaceURI() != null)) {
+                return false;
+            }
+            if (attributeName_ != null) {
+                final DomAttr attribute = element.getAttributesMap().get(attributeName_);
+                return attribute != null
+                        && attributeName_.equals(attribute.getName())
+                        && attribute.getNamespaceURI() == null
+                        && attributeValue_.equals(attribute.getValue());
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Private to avoid instantiation.
+     */
+    private SimpleXPathEvaluator() {
+        // Empty.
+    }
+
+    /**
+     * Evaluates the given expression if it is simple enough.
+     *
+     * @param contextNode the node to start searching from
+     * @param expression the already pre processed XPath expression
+     * @return the found elements in document order or {@code null} if the expression
+     *         has to be evaluated by Xalan
+     */
+    static List<DomNode> evaluate(final DomNode contextNode, final String expression) {
+        final SgmlPage page = contextNode.getPage();
+        if (!(page instanceof HtmlPage) || page instanceof XHtmlPage
+                || (contextNode != page && !contextNode.isAttachedToPage())) {
+            return null;
+        }
+
+        final List<Step> steps = parse(expression);
+        if (steps == null) {
+            return null;
+        }
+
+        List<DomNode> current = Collections.singletonList((DomNode) page);
+        for (final Step step : steps) {
+            final List<DomNode> next = new ArrayList<>();
+            if (step.descendant_) {
+                // only the first step, the context is the document
+                for (final DomElement element : page.getDomElementDescendants()) {
+                    if (step.matches(element)) {
+                        next.add(element);
+                    }
+                }
+            }
+            else {
+                // the parents are in document order and not nested, so the children are in document order too
+                for (final DomNode parent : current) {
+                    int count = 0;
+                    for (final DomNode child : parent.getChildren()) {
+                        if (child instanceof DomElement && step.matches((DomElement) child)) {
+                            count++;
+                            if (step.position_ == 0) {
+                                next.add(child);
+                            }
+                            else if (step.position_ == count) {
+                                next.add(child);
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            if (next.isEmpty()) {
+                return next;
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    private static List<Step> parse(final String expression) {
+        if (!PATH_PATTERN.matcher(expression).matches()) {
+            return null;
+        }
+
+        final List<Step> steps = new ArrayList<>();
+        final Matcher matcher = STEP_PATTERN.matcher(expression);
+        while (matcher.find()) {
+            final boolean descendant = "//".equals(matcher.group(1));
+            final String position = matcher.group(3);
+            final String attributeName = matcher.group(4);
+            // '//' means descendant-or-self::node()/, positions are relative to the parent
+            if (descendant && (!steps.isEmpty() || position != null)) {
+                return null;
+            }
+            // namespace declarations are no attributes for xpath
+            if (attributeName != null && attributeName.startsWith("xmlns")) {
+                return null;
+            }
+
+            String attributeValue = matcher.group(5);
+            if (attributeValue == null) {
+                attributeValue = matcher.group(6);
+            }
+            final String name = matcher.group(2);
+            steps.add(new Step(descendant, "*".equals(name) ? null : name,
+                    position == null ? 0 : Integer.parseInt(position), attributeName, attributeValue));
+        }
+        return steps;
+    }
+}
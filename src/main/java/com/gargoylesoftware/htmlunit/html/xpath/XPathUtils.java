@@ -17,7 +17,10 @@ package com.gargoylesoftware.htmlunit.html.xpath;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.XPATH_ATTRIBUTE_CASE_SENSITIVE;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 import javax.xml.transform.TransformerException;
 
@@ -32,6 +35,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import com.gargoylesoftware.htmlunit.SgmlPage;
 import com.gargoylesoftware.htmlunit.html.DomNode;
 
 /**
@@ -39,11 +43,31 @@ import com.gargoylesoftware.htmlunit.html.DomNode;
  *
  * @author Ahmed Ashour
  * @author Chuck Dumont
+ * @author <a href="mailto:agent@local">agent</a>
  */
 public final class XPathUtils {
 
     private static ThreadLocal<Boolean> PROCESS_XPATH_ = ThreadLocal.withInitial(() -> Boolean.FALSE);
 
+    /** String literals and axis separators; the rest of an expression contains a colon only for prefixes. */
+    private static final Pattern LITERALS_AND_AXES_PATTERN = Pattern.compile("'[^']*'|\"[^\"]*\"|::");
+
+    /** The maximum number of compiled expressions kept in {@link #XPATH_ADAPTERS}. */
+    private static final int MAX_XPATH_ADAPTERS = 500;
+
+    /**
+     * The compiled expressions without namespace prefixes, keyed by case sensitivity and expression;
+     * least recently used ones are removed first. An adapter is removed from the cache while it is
+     * in use, concurrent evaluations of the same expression simply compile their own one.
+     */
+    private static final Map<String, XPathAdapter> XPATH_ADAPTERS
+        = new LinkedHashMap<String, XPathAdapter>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, XPathAdapter> eldest) {
+                return size() > MAX_XPATH_ADAPTERS;
+            }
+        };
+
     /**
      * Private to avoid instantiation.
      */
@@ -69,7 +93,21 @@ public final class XPathUtils {
         PROCESS_XPATH_.set(Boolean.TRUE);
         final List<T> list = new ArrayList<>();
         try {
-            final XObject result = evaluateXPath(node, xpathExpr, resolver);
+            final SgmlPage page = node.getPage();
+            final boolean caseSensitive = page.hasCaseSensitiveTagNames();
+            final boolean attributeCaseSensitive = caseSensitive
+                    || page.getWebClient().getBrowserVersion().hasFeature(XPATH_ATTRIBUTE_CASE_SENSITIVE);
+
+            final List<DomNode> nodes = SimpleXPathEvaluator.evaluate(node,
+                    XPathAdapter.preProcessXPath(xpathExpr, caseSensitive, attributeCaseSensitive));
+            if (nodes != null) {
+                for (final DomNode found : nodes) {
+                    list.add((T) found);
+                }
+                return list;
+            }
+
+            final XObject result = evaluateXPath(node, xpathExpr, resolver, caseSensitive, attributeCaseSensitive);
 
             if (result instanceof XNodeSet) {
                 final NodeList nodelist = ((XNodeSet) result).nodelist();
@@ -112,11 +150,14 @@ public final class XPathUtils {
      * @param contextNode the node to start searching from
      * @param str a valid XPath string
      * @param a prefix resolver to use for resolving namespace prefixes, or null
+     * @param caseSensitive whether or not the XPath expression should be case-sensitive
+     * @param attributeCaseSensitive whether or not the attributes should be case-sensitive
      * @return an XObject, which can be used to obtain a string, number, nodelist, etc (should never be {@code null})
      * @throws TransformerException if a syntax or other error occurs
      */
     private static XObject evaluateXPath(final DomNode contextNode,
-            final String str, final PrefixResolver prefixResolver) throws TransformerException {
+            final String str, final PrefixResolver prefixResolver,
+            final boolean caseSensitive, final boolean attributeCaseSensitive) throws TransformerException {
         final XPathContext xpathSupport = new XPathContext();
         final Node xpathExpressionContext;
         if (contextNode.getNodeType() == Node.DOCUMENT_NODE) {
@@ -131,13 +172,31 @@ public final class XPathUtils {
             resolver = new HtmlUnitPrefixResolver(xpathExpressionContext);
         }
 
-        final boolean caseSensitive = contextNode.getPage().hasCaseSensitiveTagNames();
-        final boolean attributeCaseSensitive = caseSensitive
-                                                    || contextNode.getPage().getWebClient()
-                                                        .getBrowserVersion().hasFeature(XPATH_ATTRIBUTE_CASE_SENSITIVE);
-        final XPathAdapter xpath = new XPathAdapter(str, null, resolver, null, caseSensitive, attributeCaseSensitive);
-        final int ctxtNode = xpathSupport.getDTMHandleFromNode(contextNode);
-        return xpath.execute(xpathSupport, ctxtNode, prefixResolver);
+        // without prefixes the compiled expression does not depend on the resolver
+        final boolean cacheable = LITERALS_AND_AXES_PATTERN.matcher(str).replaceAll("").indexOf(':') == -1;
+        final String key = (caseSensitive ? "S" : "I") + (attributeCaseSensitive ? "S" : "I") + str;
+
+        XPathAdapter xpath = null;
+        if (cacheable) {
+            synchronized (XPATH_ADAPTERS) {
+                xpath = XPATH_ADAPTERS.remove(key);
+            }
+        }
+        if (xpath == null) {
+            xpath = new XPathAdapter(str, null, resolver, null, caseSensitive, attributeCaseSensitive);
+        }
+
+        try {
+            final int ctxtNode = xpathSupport.getDTMHandleFromNode(contextNode);
+            return xpath.execute(xpathSupport, ctxtNode, prefixResolver);
+        }
+        finally {
+            if (cacheable) {
+                synchronized (XPATH_ADAPTERS) {
+                    XPATH_ADAPTERS.put(key, xpath);
+                }
+            }
+        }
     }
 
 }
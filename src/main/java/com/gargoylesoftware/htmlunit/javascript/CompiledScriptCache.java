@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+
+import net.sourceforge.htmlunit.corejs.javascript.Script;
+
+/**
+ * <p>Caches compiled scripts by their source; used for inline scripts and event handlers,
+ * which are not covered by the {@link com.gargoylesoftware.htmlunit.Cache} of the web client.
+ * A compiled {@link Script} does not depend on a scope, therefore there is only one instance
+ * of this cache, shared by all web clients.</p>
+ *
+ * <p>The compilation depends on the browser version and on the optimization level, both are part
+ * of the key besides the source, the source name and the start line. The browser version is compared
+ * by identity, two custom versions with the same nickname may differ in their features. Scripts are
+ * not cached if the web client uses a {@link com.gargoylesoftware.htmlunit.ScriptPreProcessor} or a
+ * debugger.</p>
+ *
+ * <p>The cache is limited by the number of entries and by the total length of the cached sources;
+ * the least recently used entries are evicted first.</p>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class CompiledScriptCache {
+
+    /** The default maximum number of entries. */
+    public static final int DEFAULT_MAX_SIZE = 500;
+
+    /** The default maximum total length (in chars) of the cached sources. */
+    public static final long DEFAULT_MAX_SOURCE_LENGTH = 2_000_000;
+
+    private static final CompiledScriptCache INSTANCE = new CompiledScriptCache();
+
+    private int maxSize_ = DEFAULT_MAX_SIZE;
+    private long maxSourceLength_ = DEFAULT_MAX_SOURCE_LENGTH;
+    /** The total length of the cached sources. */
+    private long sourceLength_;
+    private long hitCount_;
+    private long missCount_;
+
+    /** Access ordered, all access has to be synchronized on the map itself. */
+    private final Map<Key, Script> entries_ = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The key of an entry.
+     */
+    private static final class Key {
+        private final BrowserVersion browserVersion_;
+        private final int optimizationLevel_;
+        private final String source_;
+        private final String sourceName_;
+        private final int startLine_;
+        private final int hash_;
+
+        Key(final BrowserVersion browserVersion, final int optimizationLevel, final String source,
+                final String sourceName, final int startLine) {
+            browserVersion_ = browserVersion;
+            optimizationLevel_ = optimizationLevel;
+            source_ = source;
+            sourceName_ = sourceName;
+            startLine_ = startLine;
+
+            int hash = source.hashCode();
+            hash = 31 * hash + String.valueOf(sourceName).hashCode();
+            hash = 31 * hash + System.identityHashCode(browserVersion);
+            hash = 31 * hash + optimizationLevel;
+            hash_ = 31 * hash + startLine;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash_;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return hash_ == other.hash_
+                    && startLine_ == other.startLine_
+                    && optimizationLevel_ == other.optimizationLevel_
+                    && browserVersion_ == other.browserVersion_
+                    && String.valueOf(sourceName_).equals(String.valueOf(other.sourceName_))
+                    && source_.equals(other.source_);
+        }
+    }
+
+    /**
+     * Private to enforce the singleton.
+     */
+    private CompiledScriptCache() {
+        // Empty.
+    }
+
+    /**
+     * Returns the cache shared by all web clients.
+     * @return the cache
+     */
+    public static CompiledScriptCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the cached script.
+     *
+     * @param browserVersion the browser version the script was compiled for
+     * @param optimizationLevel the optimization level used for the compilation
+     * @param source the source code
+     * @param sourceName the name of the source
+     * @param startLine the line at which the source starts
+     * @return the cached script or {@code null}
+     */
+    Script get(final BrowserVersion browserVersion, final int optimizationLevel, final String source,
+            final String sourceName, final int startLine) {
+        final Key key = new Key(browserVersion, optimizationLevel, source, sourceName, startLine);
+        synchronized (entries_) {
+            final Script script = entries_.get(key);
+            if (script == null) {
+                missCount_++;
+            }
+            else {
+                hitCount_++;
+            }
+            return script;
+        }
+    }
+
+    /**
+     * Caches the given script.
+     *
+     * @param browserVersion the browser version the script was compiled for
+     * @param optimizationLevel the optimization level used for the compilation
+     * @param source the source code
+     * @param sourceName the name of the source
+     * @param startLine the line at which the source starts
+     * @param script the compiled script
+     */
+    void put(final BrowserVersion browserVersion, final int optimizationLevel, final String source,
+            final String sourceName, final int startLine, final Script script) {
+        final Key key = new Key(browserVersion, optimizationLevel, source, sourceName, startLine);
+        synchronized (entries_) {
+            if (maxSize_ > 0 && source.length() <= maxSourceLength_) {
+                if (entries_.put(key, script) == null) {
+                    sourceLength_ += source.length();
+                }
+                deleteOverflow();
+            }
+        }
+    }
+
+    private void deleteOverflow() {
+        final Iterator<Key> it = entries_.keySet().iterator();
+        while ((entries_.size() > maxSize_ || sourceLength_ > maxSourceLength_) && it.hasNext()) {
+            sourceLength_ -= it.next().source_.length();
+            it.remove();
+        }
+    }
+
+    /**
+     * Returns the maximum number of entries. The default is {@link #DEFAULT_MAX_SIZE}.
+     * @return the maximum number of entries
+     */
+    public int getMaxSize() {
+        synchronized (entries_) {
+            return maxSize_;
+        }
+    }
+
+    /**
+     * Sets the maximum number of entries; <tt>0</tt> disables the cache.
+     * @param maxSize the maximum number of entries (must be &gt;= 0)
+     */
+    public void setMaxSize(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Illegal value for maxSize: " + maxSize);
+        }
+        synchronized (entries_) {
+            maxSize_ = maxSize;
+            deleteOverflow();
+        }
+    }
+
+    /**
+     * Returns the maximum total length (in chars) of the cached sources.
+     * The default is {@link #DEFAULT_MAX_SOURCE_LENGTH}.
+     * @return the maximum total length of the cached sources
+     */
+    public long getMaxSourceLength() {
+        synchronized (entries_) {
+            return maxSourceLength_;
+        }
+    }
+
+    /**
+     * Sets the maximum total length (in chars) of the cached sources; larger sources are not cached.
+     * @param maxSourceLength the maximum total length of the cached sources (must be &gt;= 0)
+     */
+    public void setMaxSourceLength(final long maxSourceLength) {
+        if (maxSourceLength < 0) {
+            throw new IllegalArgumentException("Illegal value for maxSourceLength: " + maxSourceLength);
+        }
+        synchronized (entries_) {
+            maxSourceLength_ = maxSourceLength;
+            deleteOverflow();
+        }
+    }
+
+    /**
+     * Returns the total length (in chars) of the cached sources.
+     * @return the total length of the cached sources
+     */
+    public long getSourceLength() {
+        synchronized (entries_) {
+            return sourceLength_;
+        }
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     * @return the number of entries
+     */
+    public int getSize() {
+        synchronized (entries_) {
+            return entries_.size();
+        }
+    }
+
+    /**
+     * Returns the number of lookups that were answered from the cache.
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+        synchronized (entries_) {
+            return hitCount_;
+        }
+    }
+
+    /**
+     * Returns the number of lookups that were not answered from the cache.
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+        synchronized (entries_) {
+            return missCount_;
+        }
+    }
+
+    /**
+     * Clears the cache and resets the statistics.
+     */
+    public void clear() {
+        synchronized (entries_) {
+            entries_.clear();
+            sourceLength_ = 0;
+            hitCount_ = 0;
+            missCount_ = 0;
+        }
+    }
+}
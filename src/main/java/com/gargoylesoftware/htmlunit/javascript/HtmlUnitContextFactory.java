@@ -22,6 +22,9 @@ import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_PROPERTY_D
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_PROPERTY_DESCRIPTOR_NEW_LINE;
 
 import java.io.Serializable;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.gargoylesoftware.htmlunit.BrowserVersion;
 import com.gargoylesoftware.htmlunit.ScriptException;
@@ -58,6 +61,9 @@ public class HtmlUnitContextFactory extends ContextFactory {
 
     private static final int INSTRUCTION_COUNT_THRESHOLD = 10_000;
 
+    /** The optimization level used if the JavaScript code is compiled. */
+    private static final int COMPILED_OPTIMIZATION_LEVEL = 9;
+
     private final WebClient webClient_;
     private final BrowserVersion browserVersion_;
     private long timeout_;
@@ -134,11 +140,30 @@ public class HtmlUnitContextFactory extends ContextFactory {
         return deminifyFunctionCode_;
     }
 
+    /**
+     * The watchdog used for compiled code; a single daemon thread flagging the contexts that
+     * are running too long. Created when first used.
+     */
+    private static final class Watchdog {
+        private static final ScheduledThreadPoolExecutor EXECUTOR;
+
+        static {
+            EXECUTOR = new ScheduledThreadPoolExecutor(1, runnable -> {
+                final Thread thread = new Thread(runnable, "JS timeout watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            EXECUTOR.setRemoveOnCancelPolicy(true);
+        }
+    }
+
     /**
      * Custom context to store execution time and handle timeouts.
      */
     private class TimeoutContext extends Context {
         private long startTime_;
+        private volatile boolean timedOut_;
+        private ScheduledFuture<?> watchdog_;
 
         protected TimeoutContext(final ContextFactory factory) {
             super(factory);
@@ -148,8 +173,35 @@ public class HtmlUnitContextFactory extends ContextFactory {
             startTime_ = System.currentTimeMillis();
         }
 
-        public void terminateScriptIfNecessary() {
+        /**
+         * Compiled code is much faster than interpreted code; instead of checking the clock
+         * every few instructions, a watchdog flags this context when the timeout is reached.
+         */
+        public void startWatchdog() {
+            timedOut_ = false;
             if (timeout_ > 0) {
+                watchdog_ = Watchdog.EXECUTOR.schedule(() -> {
+                    timedOut_ = true;
+                }, timeout_, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        public void stopWatchdog() {
+            if (watchdog_ != null) {
+                watchdog_.cancel(false);
+                watchdog_ = null;
+            }
+        }
+
+        public void terminateScriptIfNecessary() {
+            if (watchdog_ != null) {
+                if (timedOut_) {
+                    // Terminate script by throwing an Error instance to ensure that the
+                    // script will never get control back through catch or finally.
+                    throw new TimeoutError(timeout_, System.currentTimeMillis() - startTime_);
+                }
+            }
+            else if (timeout_ > 0) {
                 final long currentTime = System.currentTimeMillis();
                 if (currentTime - startTime_ > timeout_) {
                     // Terminate script by throwing an Error instance to ensure that the
@@ -274,8 +326,15 @@ public class HtmlUnitContextFactory extends ContextFactory {
         final TimeoutContext cx = new TimeoutContext(this);
         cx.setLanguageVersion(Context.VERSION_ES6);
 
-        // Use pure interpreter mode to get observeInstructionCount() callbacks.
-        cx.setOptimizationLevel(-1);
+        final boolean compile = debugger_ == null && webClient_.getOptions().isCompileJavaScript();
+        if (compile) {
+            // compiled code does the observeInstructionCount() callbacks also
+            cx.setOptimizationLevel(COMPILED_OPTIMIZATION_LEVEL);
+        }
+        else {
+            // Use pure interpreter mode to get observeInstructionCount() callbacks.
+            cx.setOptimizationLevel(-1);
+        }
 
         // Set threshold on how often we want to receive the callbacks
         cx.setInstructionObserverThreshold(INSTRUCTION_COUNT_THRESHOLD);
@@ -290,7 +349,10 @@ public class HtmlUnitContextFactory extends ContextFactory {
         // register custom RegExp processing
         ScriptRuntime.setRegExpProxy(cx, new HtmlUnitRegExpProxy(ScriptRuntime.getRegExpProxy(cx), browserVersion_));
 
-        cx.setMaximumInterpreterStackDepth(10_000);
+        if (!compile) {
+            // only supported by the interpreter, compiled code uses the java stack
+            cx.setMaximumInterpreterStackDepth(10_000);
+        }
 
         return cx;
     }
@@ -319,7 +381,17 @@ public class HtmlUnitContextFactory extends ContextFactory {
 
         final TimeoutContext tcx = (TimeoutContext) cx;
         tcx.startClock();
-        return super.doTopCall(callable, cx, scope, thisObj, args);
+        if (cx.getOptimizationLevel() == -1) {
+            return super.doTopCall(callable, cx, scope, thisObj, args);
+        }
+
+        tcx.startWatchdog();
+        try {
+            return super.doTopCall(callable, cx, scope, thisObj, args);
+        }
+        finally {
+            tcx.stopWatchdog();
+        }
     }
 
     /**
@@ -592,7 +592,7 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
         for (final Entry<String, Method> functionInfo : config.getFunctionEntries()) {
             final String functionName = functionInfo.getKey();
             final Method method = functionInfo.getValue();
-            final FunctionObject functionObject = new FunctionObject(functionName, method, scriptable);
+            final FunctionObject functionObject = new MethodHandleFunctionObject(functionName, method, scriptable);
             scriptable.defineProperty(functionName, functionObject, attributes);
         }
     }
@@ -630,7 +630,7 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
         for (final Entry<String, Method> staticfunctionInfo : config.getStaticFunctionEntries()) {
             final String functionName = staticfunctionInfo.getKey();
             final Method method = staticfunctionInfo.getValue();
-            final FunctionObject staticFunctionObject = new FunctionObject(functionName, method,
+            final FunctionObject staticFunctionObject = new MethodHandleFunctionObject(functionName, method,
                     scriptable);
             scriptable.defineProperty(functionName, staticFunctionObject, ScriptableObject.EMPTY);
         }
@@ -701,7 +701,19 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
         final ContextAction<Object> action = new HtmlUnitContextAction(scope, owningPage) {
             @Override
             public Object doRun(final Context cx) {
-                return cx.compileString(sourceCode, sourceName, startLine, null);
+                if (!isCompiledScriptCacheUsable(cx)) {
+                    return cx.compileString(sourceCode, sourceName, startLine, null);
+                }
+
+                final CompiledScriptCache cache = CompiledScriptCache.getInstance();
+                final BrowserVersion browserVersion = webClient_.getBrowserVersion();
+                final int optimizationLevel = cx.getOptimizationLevel();
+                Script script = cache.get(browserVersion, optimizationLevel, sourceCode, sourceName, startLine);
+                if (script == null) {
+                    script = cx.compileString(sourceCode, sourceName, startLine, null);
+                    cache.put(browserVersion, optimizationLevel, sourceCode, sourceName, startLine, script);
+                }
+                return script;
             }
 
             @Override
@@ -713,6 +725,54 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
         return (Script) getContextFactory().callSecured(action, owningPage);
     }
 
+    /**
+     * Compiles the source of an event handler function; the function is created in the given scope.
+     * The source has to be a single function declaration.
+     *
+     * <p>The compiled script is cached by its source and the source name, the source name is part of
+     * the compiled script and reported in errors and stack traces.</p>
+     *
+     * @param cx the current context
+     * @param scope the scope of the function
+     * @param source the source of the function
+     * @param sourceName the name that will be displayed on error conditions
+     * @return the function
+     */
+    public Function compileFunction(final Context cx, final Scriptable scope, final String source,
+            final String sourceName) {
+        if (!isCompiledScriptCacheUsable(cx) || contextFactory_.isDeminifyFunctionCode()) {
+            return cx.compileFunction(scope, source, sourceName, 0, null);
+        }
+
+        // the script evaluates the function expression, this creates a new function for every scope
+        final String expression = "(" + source + ")";
+        final CompiledScriptCache cache = CompiledScriptCache.getInstance();
+        final BrowserVersion browserVersion = webClient_.getBrowserVersion();
+        final int optimizationLevel = cx.getOptimizationLevel();
+        Script script = cache.get(browserVersion, optimizationLevel, expression, sourceName, 0);
+        if (script == null) {
+            script = cx.compileString(expression, sourceName, 0, null);
+            cache.put(browserVersion, optimizationLevel, expression, sourceName, 0, script);
+        }
+        final Object function = script.exec(cx, scope);
+        if (function instanceof Function) {
+            return (Function) function;
+        }
+        // the source was not a single function, let Rhino report this
+        return cx.compileFunction(scope, source, sourceName, 0, null);
+    }
+
+    /**
+     * The compiled scripts can only be shared if the compilation depends on nothing else than the
+     * source and the browser version.
+     */
+    private boolean isCompiledScriptCacheUsable(final Context cx) {
+        return webClient_ != null
+                && webClient_.getScriptPreProcessor() == null
+                && cx.getDebugger() == null
+                && CompiledScriptCache.getInstance().getMaxSize() > 0;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1024,6 +1084,16 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
         return jsConfig_.getDomJavaScriptMapping().get(c);
     }
 
+    /**
+     * Gets the class of the JavaScript object for the node class, walking up
+     * the inheritance chain of the node class if necessary.
+     * @param c the node class {@link DomNode} or some subclass.
+     * @return {@code null} if none found
+     */
+    public Class<? extends HtmlUnitScriptable> getJavaScriptClassForDomClass(final Class<?> c) {
+        return jsConfig_.getDomJavaScriptClass(c);
+    }
+
     /**
      * Gets the associated configuration.
      * @return the configuration
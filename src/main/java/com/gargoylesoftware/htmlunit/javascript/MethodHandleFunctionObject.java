@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sourceforge.htmlunit.corejs.javascript.ConsString;
+import net.sourceforge.htmlunit.corejs.javascript.Context;
+import net.sourceforge.htmlunit.corejs.javascript.ContinuationPending;
+import net.sourceforge.htmlunit.corejs.javascript.FunctionObject;
+import net.sourceforge.htmlunit.corejs.javascript.ScriptRuntime;
+import net.sourceforge.htmlunit.corejs.javascript.Scriptable;
+import net.sourceforge.htmlunit.corejs.javascript.Undefined;
+
+/**
+ * A {@link FunctionObject} that calls the Java method through a pre-linked {@link MethodHandle}
+ * instead of {@link Method#invoke(Object, Object...)}. Calls with up to three arguments don't
+ * allocate an argument array at all.
+ *
+ * <p>The conversions of the arguments and of the result are the same as done by
+ * {@link FunctionObject}. Methods using the variable arguments signature
+ * ({@code Context, Scriptable, Object[], Function}) and methods that are not accessible
+ * are still invoked by {@link FunctionObject}.</p>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class MethodHandleFunctionObject extends FunctionObject {
+
+    /** The maximum number of arguments passed without an array. */
+    private static final int MAX_SPECIALIZED_ARITY = 3;
+
+    /** The invokers are independent of the window, they are shared by all function objects. */
+    private static final Map<Method, Invoker> INVOKERS = new ConcurrentHashMap<>();
+
+    private transient Invoker invoker_;
+
+    /**
+     * The pre-linked call of a method.
+     */
+    private static final class Invoker {
+        /** The handle taking the receiver (ignored for static methods) and the arguments, or {@code null}. */
+        private final MethodHandle handle_;
+        private final Class<?> declaringClass_;
+        private final boolean static_;
+        private final int[] typeTags_;
+        private final boolean voidReturn_;
+        private final boolean wrapResult_;
+
+        Invoker(final Method method) {
+            declaringClass_ = method.getDeclaringClass();
+            static_ = Modifier.isStatic(method.getModifiers());
+
+            final Class<?>[] types = method.getParameterTypes();
+            final int arity = types.length;
+            typeTags_ = new int[arity];
+            for (int i = 0; i < arity; i++) {
+                typeTags_[i] = getTypeTag(types[i]);
+            }
+
+            final Class<?> returnType = method.getReturnType();
+            voidReturn_ = returnType == Void.TYPE;
+            wrapResult_ = !voidReturn_ && getTypeTag(returnType) == JAVA_UNSUPPORTED_TYPE;
+
+            MethodHandle handle = null;
+            // same check as in FunctionObject, this is the variable arguments form
+            if (arity != 4 || !(types[1].isArray() || types[2].isArray())) {
+                try {
+                    handle = MethodHandles.lookup().unreflect(method);
+                    if (static_) {
+                        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+                    }
+                    handle = handle.asType(MethodType.genericMethodType(arity + 1));
+                    if (arity > MAX_SPECIALIZED_ARITY) {
+                        handle = handle.asSpreader(Object[].class, arity);
+                    }
+                }
+                catch (final IllegalAccessException e) {
+                    handle = null;
+                }
+            }
+            handle_ = handle;
+        }
+    }
+
+    /**
+     * Creates a new instance.
+     * @param name the name of the function
+     * @param method the method to call
+     * @param scope the enclosing scope of the function
+     */
+    public MethodHandleFunctionObject(final String name, final Method method, final Scriptable scope) {
+        super(name, method, scope);
+        invoker_ = INVOKERS.computeIfAbsent(method, Invoker::new);
+    }
+
+    private Invoker getInvoker() {
+        if (invoker_ == null) {
+            // after deserialization
+            invoker_ = INVOKERS.computeIfAbsent((Method) getMethodOrConstructor(), Invoker::new);
+        }
+        return invoker_;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object call(final Context cx, final Scriptable scope, final Scriptable thisObj, final Object[] args) {
+        final Invoker invoker = getInvoker();
+        final MethodHandle handle = invoker.handle_;
+        if (handle == null) {
+            return super.call(cx, scope, thisObj, args);
+        }
+
+        Scriptable target = thisObj;
+        if (!invoker.static_ && !invoker.declaringClass_.isInstance(target)) {
+            boolean compatible = false;
+            if (thisObj == scope) {
+                final Scriptable parentScope = getParentScope();
+                if (scope != parentScope) {
+                    // call with dynamic scope for standalone function, use parentScope as thisObj
+                    compatible = invoker.declaringClass_.isInstance(parentScope);
+                    if (compatible) {
+                        target = parentScope;
+                    }
+                }
+            }
+            if (!compatible) {
+                throw ScriptRuntime.typeError1("msg.incompat.call", getFunctionName());
+            }
+        }
+
+        final int[] typeTags = invoker.typeTags_;
+        final Object result;
+        try {
+            switch (typeTags.length) {
+                case 0:
+                    result = (Object) handle.invokeExact((Object) target);
+                    break;
+
+                case 1:
+                    result = (Object) handle.invokeExact((Object) target,
+                            convert(cx, scope, args, 0, typeTags));
+                    break;
+
+                case 2:
+                    result = (Object) handle.invokeExact((Object) target,
+                            convert(cx, scope, args, 0, typeTags),
+                            convert(cx, scope, args, 1, typeTags));
+                    break;
+
+                case 3:
+                    result = (Object) handle.invokeExact((Object) target,
+                            convert(cx, scope, args, 0, typeTags),
+                            convert(cx, scope, args, 1, typeTags),
+                            convert(cx, scope, args, 2, typeTags));
+                    break;
+
+                default:
+                    final Object[] invokeArgs = new Object[typeTags.length];
+                    for (int i = 0; i < invokeArgs.length; i++) {
+                        invokeArgs[i] = convert(cx, scope, args, i, typeTags);
+                    }
+                    result = (Object) handle.invokeExact((Object) target, invokeArgs);
+            }
+        }
+        catch (final ContinuationPending e) {
+            throw e;
+        }
+        catch (final Throwable t) {
+            throw Context.throwAsScriptRuntimeEx(t);
+        }
+
+        if (invoker.voidReturn_) {
+            return Undefined.instance;
+        }
+        if (invoker.wrapResult_) {
+            return cx.getWrapFactory().wrap(cx, scope, result, null);
+        }
+        return result;
+    }
+
+    private static Object convert(final Context cx, final Scriptable scope, final Object[] args, final int index,
+            final int[] typeTags) {
+        Object arg = index < args.length ? args[index] : Undefined.instance;
+        if (arg instanceof ConsString) {
+            arg = arg.toString();
+        }
+        return convertArg(cx, scope, arg, typeTags[index]);
+    }
+}
@@ -17,6 +17,9 @@ package com.gargoylesoftware.htmlunit.javascript;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.HTMLIMAGE_HTMLELEMENT;
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.HTMLIMAGE_HTMLUNKNOWNELEMENT;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.Deque;
 
@@ -57,6 +60,20 @@ public class SimpleScriptable extends HtmlUnitScriptable implements Cloneable {
 
     private static final Log LOG = LogFactory.getLog(SimpleScriptable.class);
 
+    /** The default constructors of the JavaScript classes, {@code null} if not accessible. */
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(final Class<?> javaScriptClass) {
+            try {
+                return MethodHandles.lookup().findConstructor(javaScriptClass, MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(SimpleScriptable.class));
+            }
+            catch (final NoSuchMethodException | IllegalAccessException e) {
+                return null;
+            }
+        }
+    };
+
     private DomNode domNode_;
     private boolean caseSensitive_ = true;
 
@@ -211,9 +228,8 @@ public class SimpleScriptable extends HtmlUnitScriptable implements Cloneable {
         if (javaScriptClass == null) {
             final JavaScriptEngine javaScriptEngine =
                     (JavaScriptEngine) getWindow().getWebWindow().getWebClient().getJavaScriptEngine();
-            for (Class<?> c = domNode.getClass(); javaScriptClass == null && c != null; c = c.getSuperclass()) {
-                javaScriptClass = (Class<? extends SimpleScriptable>) javaScriptEngine.getJavaScriptClass(c);
-            }
+            javaScriptClass = (Class<? extends SimpleScriptable>)
+                    javaScriptEngine.getJavaScriptClassForDomClass(domNode.getClass());
         }
 
         final SimpleScriptable scriptable;
@@ -225,12 +241,7 @@ public class SimpleScriptable extends HtmlUnitScriptable implements Cloneable {
             }
         }
         else {
-            try {
-                scriptable = javaScriptClass.newInstance();
-            }
-            catch (final Exception e) {
-                throw Context.throwAsScriptRuntimeEx(e);
-            }
+            scriptable = newInstance(javaScriptClass);
         }
         initParentScope(domNode, scriptable);
 
@@ -240,6 +251,19 @@ public class SimpleScriptable extends HtmlUnitScriptable implements Cloneable {
         return scriptable;
     }
 
+    private static SimpleScriptable newInstance(final Class<? extends SimpleScriptable> javaScriptClass) {
+        final MethodHandle constructor = CONSTRUCTORS.get(javaScriptClass);
+        try {
+            if (constructor == null) {
+                return javaScriptClass.newInstance();
+            }
+            return (SimpleScriptable) constructor.invokeExact();
+        }
+        catch (final Throwable t) {
+            throw Context.throwAsScriptRuntimeEx(t);
+        }
+    }
+
     /**
      * Initialize the parent scope of a newly created scriptable.
      * @param domNode the DOM node for the script object
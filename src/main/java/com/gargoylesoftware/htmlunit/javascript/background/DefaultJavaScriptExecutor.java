@@ -28,11 +28,14 @@ import com.gargoylesoftware.htmlunit.WebWindow;
 /**
  * An event loop to execute all the JavaScript jobs.
  *
+ * <p>The event loop thread does not poll; it waits until the target execution time
+ * of the earliest job or until a job manager signals a new job (see {@link #jobAdded(JavaScriptJobManager)}).</p>
+ *
  * @author Amit Manjhi
  * @author Kostadin Chikov
  * @author Ronald Brill
  */
-public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
+public class DefaultJavaScriptExecutor implements JavaScriptExecutor, JavaScriptJobManagerImpl.JobAddedListener {
 
     private final transient WeakReference<WebClient> webClient_;
     private final transient List<WeakReference<JavaScriptJobManager>> jobManagerList_;
@@ -41,6 +44,18 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
 
     private transient Thread eventLoopThread_;
 
+    /** Used to park the event loop thread until there is something to do. */
+    private final transient Object wakeUpMonitor_ = new Object();
+
+    /** Set if a job was added since the last scan of the job managers; guarded by {@link #wakeUpMonitor_}. */
+    private transient boolean jobAdded_;
+
+    /**
+     * The maximum time the event loop thread waits if there are no jobs at all; this makes
+     * sure the thread terminates, if the web client was garbage collected without being closed.
+     */
+    private static final long MAX_IDLE_WAIT = 1000;
+
     /** Logging support. */
     private static final Log LOG = LogFactory.getLog(DefaultJavaScriptExecutor.class);
 
@@ -128,16 +143,20 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
     @Override
     public void run() {
         final boolean trace = LOG.isTraceEnabled();
-        // this has to be a multiple of 10ms
-        // otherwise the VM has to fight with the OS to get such small periods
-        final long sleepInterval = 10;
         while (!shutdown_.get() && !Thread.currentThread().isInterrupted() && webClient_.get() != null) {
+            // reset the flag before looking for the earliest job; a job added
+            // after this point will prevent us from waiting below
+            synchronized (wakeUpMonitor_) {
+                jobAdded_ = false;
+            }
+
             final JavaScriptJobManager jobManager = getJobManagerWithEarliestJob();
 
+            long waitTime = MAX_IDLE_WAIT;
             if (jobManager != null) {
                 final JavaScriptJob earliestJob = jobManager.getEarliestJob();
                 if (earliestJob != null) {
-                    final long waitTime = earliestJob.getTargetExecutionTime() - System.currentTimeMillis();
+                    waitTime = earliestJob.getTargetExecutionTime() - System.currentTimeMillis();
 
                     // do we have to execute the earliest job
                     if (waitTime < 1) {
@@ -153,6 +172,7 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
                         // job is done, have a look for another one
                         continue;
                     }
+                    waitTime = Math.min(waitTime, MAX_IDLE_WAIT);
                 }
             }
 
@@ -161,9 +181,13 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
                 break;
             }
 
-            // nothing to do, let's sleep a bit
+            // nothing to do, wait for the next job to become due or for a new job
             try {
-                Thread.sleep(sleepInterval);
+                synchronized (wakeUpMonitor_) {
+                    if (!jobAdded_) {
+                        wakeUpMonitor_.wait(waitTime);
+                    }
+                }
             }
             catch (final InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -171,6 +195,19 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
         }
     }
 
+    /**
+     * Wakes up the event loop thread because a job was added to one of the
+     * registered job managers; the new job might be the new earliest one.
+     * @param jobManager the job manager
+     */
+    @Override
+    public void jobAdded(final JavaScriptJobManager jobManager) {
+        synchronized (wakeUpMonitor_) {
+            jobAdded_ = true;
+            wakeUpMonitor_.notifyAll();
+        }
+    }
+
     /**
      * Register a window with the eventLoop.
      * @param newWindow the new web window
@@ -198,6 +235,9 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
             }
 
             managers.add(new WeakReference<>(newJobManager));
+            if (newJobManager instanceof JavaScriptJobManagerImpl) {
+                ((JavaScriptJobManagerImpl) newJobManager).setExecutor(this);
+            }
 
             jobManagerList_.clear();
             jobManagerList_.addAll(managers);
@@ -208,6 +248,7 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
     @Override
     public void shutdown() {
         shutdown_.set(true);
+        jobAdded(null);
         killThread();
 
         webClient_.clear();
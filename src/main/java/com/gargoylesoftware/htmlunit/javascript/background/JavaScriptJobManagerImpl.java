@@ -58,6 +58,9 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
 
     private transient JavaScriptJob currentlyRunningJob_;
 
+    /** The executor running our jobs; informed about new jobs to avoid polling. */
+    private transient volatile WeakReference<JobAddedListener> executor_;
+
     /** A counter used to generate the IDs assigned to {@link JavaScriptJob}s. */
     private static final AtomicInteger NEXT_JOB_ID_ = new AtomicInteger(1);
 
@@ -133,9 +136,37 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
             notify();
         }
 
+        final WeakReference<JobAddedListener> executorRef = executor_;
+        if (executorRef != null) {
+            final JobAddedListener executor = executorRef.get();
+            if (executor != null) {
+                executor.jobAdded(this);
+            }
+        }
+
         return id;
     }
 
+    /**
+     * Sets the executor to inform, if a new job is added.
+     * @param executor the executor
+     */
+    void setExecutor(final JobAddedListener executor) {
+        executor_ = new WeakReference<>(executor);
+    }
+
+    /**
+     * Implemented by the executors to get informed about new jobs.
+     */
+    interface JobAddedListener {
+
+        /**
+         * Called after a job was added to the job manager.
+         * @param jobManager the job manager
+         */
+        void jobAdded(JavaScriptJobManager jobManager);
+    }
+
     /** {@inheritDoc} */
     @Override
     public synchronized void removeJob(final int id) {
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.background;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+
+/**
+ * A {@link BackgroundJavaScriptFactory} where the background JavaScript of all web clients
+ * is run by one bounded pool of threads, instead of one thread per web client.
+ *
+ * <p>Usage:</p>
+ * <pre>
+ * BackgroundJavaScriptFactory.setFactory(new PooledBackgroundJavaScriptFactory(8));
+ * </pre>
+ *
+ * <p>The jobs of one window never run concurrently. To be fair to all windows, a window
+ * gives the thread back to the pool after running {@code maxJobsPerSlice} jobs in a row.
+ * A custom {@link ThreadFactory} can be used to run the jobs on e.g. virtual threads.</p>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @see PooledJavaScriptExecutor
+ */
+public class PooledBackgroundJavaScriptFactory extends BackgroundJavaScriptFactory {
+
+    /** The default number of jobs one window can run in a row. */
+    public static final int DEFAULT_MAX_JOBS_PER_SLICE = 10;
+
+    private final ScheduledThreadPoolExecutor pool_;
+    private final int maxJobsPerSlice_;
+
+    /**
+     * Creates a new factory using a pool of daemon threads.
+     *
+     * @param poolSize the number of threads in the pool
+     */
+    public PooledBackgroundJavaScriptFactory(final int poolSize) {
+        this(poolSize, DEFAULT_MAX_JOBS_PER_SLICE, new DaemonThreadFactory());
+    }
+
+    /**
+     * Creates a new factory.
+     *
+     * @param poolSize the number of threads in the pool
+     * @param maxJobsPerSlice the maximum number of jobs of one window to run before giving
+     *        the thread back to the pool
+     * @param threadFactory the factory for the pool threads
+     */
+    public PooledBackgroundJavaScriptFactory(final int poolSize, final int maxJobsPerSlice,
+            final ThreadFactory threadFactory) {
+        if (maxJobsPerSlice < 1) {
+            throw new IllegalArgumentException("Illegal value for maxJobsPerSlice: " + maxJobsPerSlice);
+        }
+        pool_ = new ScheduledThreadPoolExecutor(poolSize, threadFactory);
+        pool_.setRemoveOnCancelPolicy(true);
+        maxJobsPerSlice_ = maxJobsPerSlice;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JavaScriptExecutor createJavaScriptExecutor(final WebClient webClient) {
+        return new PooledJavaScriptExecutor(webClient, pool_, maxJobsPerSlice_);
+    }
+
+    /**
+     * Stops the pool; the factory can not be used any longer.
+     */
+    public void shutdown() {
+        pool_.shutdownNow();
+    }
+
+    /**
+     * Creates the daemon threads for the pool.
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber_ = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "JS executor pool " + threadNumber_.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
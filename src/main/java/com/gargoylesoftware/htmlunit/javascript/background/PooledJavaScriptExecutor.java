@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.background;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebWindow;
+
+/**
+ * A {@link JavaScriptExecutor} without an own thread; the jobs of all windows are run
+ * by a {@link ScheduledExecutorService} that can be shared by many web clients.
+ *
+ * <p>For every window at most one task is scheduled at a time, therefore the jobs of one
+ * window never run concurrently. A task runs at most {@code maxJobsPerSlice} jobs
+ * in a row before it reschedules itself, giving the other windows a chance to run.</p>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @see PooledBackgroundJavaScriptFactory
+ */
+public class PooledJavaScriptExecutor implements JavaScriptExecutor, JavaScriptJobManagerImpl.JobAddedListener {
+
+    /** Logging support. */
+    private static final Log LOG = LogFactory.getLog(PooledJavaScriptExecutor.class);
+
+    private final transient WeakReference<WebClient> webClient_;
+    private final transient ScheduledExecutorService pool_;
+    private final int maxJobsPerSlice_;
+    private final transient Map<JavaScriptJobManager, WindowTask> tasks_ = new WeakHashMap<>();
+    private final transient AtomicBoolean shutdown_ = new AtomicBoolean();
+
+    /**
+     * Creates a new executor for the given web client.
+     *
+     * @param webClient the web client
+     * @param pool the pool to run the jobs
+     * @param maxJobsPerSlice the maximum number of jobs of one window to run without rescheduling
+     */
+    public PooledJavaScriptExecutor(final WebClient webClient, final ScheduledExecutorService pool,
+            final int maxJobsPerSlice) {
+        if (maxJobsPerSlice < 1) {
+            throw new IllegalArgumentException("Illegal value for maxJobsPerSlice: " + maxJobsPerSlice);
+        }
+        webClient_ = new WeakReference<>(webClient);
+        pool_ = pool;
+        maxJobsPerSlice_ = maxJobsPerSlice;
+    }
+
+    /**
+     * Register a window with the executor.
+     * @param newWindow the new web window
+     */
+    @Override
+    public void addWindow(final WebWindow newWindow) {
+        final JavaScriptJobManager jobManager = newWindow.getJobManager();
+        if (jobManager == null) {
+            return;
+        }
+
+        final WindowTask task;
+        synchronized (tasks_) {
+            if (tasks_.containsKey(jobManager)) {
+                return;
+            }
+            task = new WindowTask(jobManager);
+            tasks_.put(jobManager, task);
+        }
+        if (jobManager instanceof JavaScriptJobManagerImpl) {
+            ((JavaScriptJobManagerImpl) jobManager).setExecutor(this);
+        }
+        task.schedule();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void jobAdded(final JavaScriptJobManager jobManager) {
+        final WindowTask task;
+        synchronized (tasks_) {
+            task = tasks_.get(jobManager);
+        }
+        if (task != null) {
+            task.schedule();
+        }
+    }
+
+    /**
+     * Checks all registered windows for jobs to be scheduled. The jobs itself are run by the pool.
+     */
+    @Override
+    public void run() {
+        for (final WindowTask task : getTasks()) {
+            task.schedule();
+        }
+    }
+
+    /** Notes that this executor has been shutdown. */
+    @Override
+    public void shutdown() {
+        shutdown_.set(true);
+        for (final WindowTask task : getTasks()) {
+            task.cancel();
+        }
+        synchronized (tasks_) {
+            tasks_.clear();
+        }
+        webClient_.clear();
+    }
+
+    private List<WindowTask> getTasks() {
+        synchronized (tasks_) {
+            return new ArrayList<>(tasks_.values());
+        }
+    }
+
+    private boolean isShutdown() {
+        return shutdown_.get() || webClient_.get() == null;
+    }
+
+    /**
+     * Runs the due jobs of one window; scheduled at the target execution time of the earliest job.
+     */
+    private final class WindowTask implements Runnable {
+        private final WeakReference<JavaScriptJobManager> jobManager_;
+
+        // guarded by this
+        private ScheduledFuture<?> future_;
+        private long scheduledFor_;
+        private boolean running_;
+
+        WindowTask(final JavaScriptJobManager jobManager) {
+            jobManager_ = new WeakReference<>(jobManager);
+        }
+
+        /**
+         * Schedules this task for the earliest job of the window, if it is not already
+         * scheduled for an earlier time or running.
+         */
+        void schedule() {
+            final JavaScriptJobManager jobManager = jobManager_.get();
+            if (jobManager == null || isShutdown()) {
+                return;
+            }
+            final JavaScriptJob earliestJob = jobManager.getEarliestJob();
+            if (earliestJob == null) {
+                return;
+            }
+            final long targetTime = earliestJob.getTargetExecutionTime();
+
+            synchronized (this) {
+                if (running_) {
+                    // the running task schedules again when done
+                    return;
+                }
+                if (future_ != null) {
+                    if (scheduledFor_ <= targetTime) {
+                        return;
+                    }
+                    future_.cancel(false);
+                }
+
+                try {
+                    final long delay = Math.max(0, targetTime - System.currentTimeMillis());
+                    future_ = pool_.schedule(this, delay, TimeUnit.MILLISECONDS);
+                    scheduledFor_ = targetTime;
+                }
+                catch (final RejectedExecutionException e) {
+                    future_ = null;
+                    LOG.warn("JavaScript job rejected by the pool, is it already shut down?", e);
+                }
+            }
+        }
+
+        synchronized void cancel() {
+            if (future_ != null) {
+                future_.cancel(false);
+                future_ = null;
+            }
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                // a cancelled task might still start; make sure only one runs at a time
+                if (running_) {
+                    return;
+                }
+                running_ = true;
+                future_ = null;
+            }
+
+            try {
+                final JavaScriptJobManager jobManager = jobManager_.get();
+                for (int i = 0; i < maxJobsPerSlice_ && jobManager != null && !isShutdown(); i++) {
+                    final JavaScriptJob earliestJob = jobManager.getEarliestJob();
+                    if (earliestJob == null || earliestJob.getTargetExecutionTime() > System.currentTimeMillis()) {
+                        break;
+                    }
+                    jobManager.runSingleJob(earliestJob);
+                }
+            }
+            finally {
+                synchronized (this) {
+                    running_ = false;
+                }
+
+                // there might be more jobs (also if one failed), go to the end of the queue
+                schedule();
+            }
+        }
+    }
+}
@@ -55,6 +55,20 @@ public abstract class AbstractJavaScriptConfiguration {
 
     private Map<Class<?>, Class<? extends HtmlUnitScriptable>> domJavaScriptMap_;
 
+    /** The JavaScript class of a DOM class, including the mappings inherited from the superclasses. */
+    private final ClassValue<Class<? extends HtmlUnitScriptable>> domJavaScriptClasses_ =
+            new ClassValue<Class<? extends HtmlUnitScriptable>>() {
+                @Override
+                protected Class<? extends HtmlUnitScriptable> computeValue(final Class<?> domClass) {
+                    final Map<Class<?>, Class<? extends HtmlUnitScriptable>> mapping = getDomJavaScriptMapping();
+                    Class<? extends HtmlUnitScriptable> javaScriptClass = null;
+                    for (Class<?> c = domClass; javaScriptClass == null && c != null; c = c.getSuperclass()) {
+                        javaScriptClass = mapping.get(c);
+                    }
+                    return javaScriptClass;
+                }
+            };
+
     private final Map<String, ClassConfiguration> configuration_;
 
     /**
@@ -366,4 +380,14 @@ public abstract class AbstractJavaScriptConfiguration {
 
         return domJavaScriptMap_;
     }
+
+    /**
+     * Returns the JavaScript class for the given DOM class; if the DOM class itself is not mapped
+     * the mapping of the nearest superclass is used. The result is computed only once per DOM class.
+     * @param domClass the DOM class ({@link com.gargoylesoftware.htmlunit.html.DomNode} or some subclass)
+     * @return the JavaScript class or {@code null} if none found
+     */
+    public Class<? extends HtmlUnitScriptable> getDomJavaScriptClass(final Class<?> domClass) {
+        return domJavaScriptClasses_.get(domClass);
+    }
 }
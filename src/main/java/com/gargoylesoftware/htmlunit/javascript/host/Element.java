@@ -29,7 +29,9 @@ import static com.gargoylesoftware.htmlunit.javascript.configuration.SupportedBr
 import static com.gargoylesoftware.htmlunit.javascript.configuration.SupportedBrowser.IE;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
@@ -39,6 +41,7 @@ import org.apache.commons.logging.LogFactory;
 import org.xml.sax.SAXException;
 
 import com.gargoylesoftware.css.parser.CSSException;
+import com.gargoylesoftware.htmlunit.Page;
 import com.gargoylesoftware.htmlunit.html.DomAttr;
 import com.gargoylesoftware.htmlunit.html.DomCharacterData;
 import com.gargoylesoftware.htmlunit.html.DomComment;
@@ -48,6 +51,7 @@ import com.gargoylesoftware.htmlunit.html.DomText;
 import com.gargoylesoftware.htmlunit.html.HTMLParser;
 import com.gargoylesoftware.htmlunit.html.HtmlElement;
 import com.gargoylesoftware.htmlunit.html.HtmlElement.DisplayStyle;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import com.gargoylesoftware.htmlunit.javascript.NamedNodeMap;
 import com.gargoylesoftware.htmlunit.javascript.configuration.JsxClass;
 import com.gargoylesoftware.htmlunit.javascript.configuration.JsxConstructor;
@@ -243,6 +247,20 @@ public class Element extends Node {
                 protected boolean isMatching(final DomNode nodeToMatch) {
                     return tagNameLC.equalsIgnoreCase(nodeToMatch.getNodeName());
                 }
+
+                @Override
+                protected Iterable<DomNode> getCandidates() {
+                    final DomNode domNode = getDomNodeOrNull();
+                    final Page page = domNode.getPage();
+                    if (page instanceof HtmlPage && domNode == ((HtmlPage) page).getDocumentElement()) {
+                        final List<DomElement> candidates = ((HtmlPage) page).getElementsByLocalName(tagNameLC);
+                        if (candidates != null) {
+                            candidates.remove(domNode);
+                            return Collections.<DomNode>unmodifiableList(candidates);
+                        }
+                    }
+                    return super.getCandidates();
+                }
             };
         }
 
@@ -20,6 +20,9 @@ import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.WEBSOCKET_SRC
 import java.io.IOException;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.StringUtils;
@@ -27,7 +30,6 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.UpgradeException;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
 import org.eclipse.jetty.websocket.api.WebSocketListener;
 import org.eclipse.jetty.websocket.api.WebSocketPolicy;
@@ -38,6 +40,8 @@ import com.gargoylesoftware.htmlunit.WebClientOptions;
 import com.gargoylesoftware.htmlunit.WebWindow;
 import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import com.gargoylesoftware.htmlunit.javascript.JavaScriptEngine;
+import com.gargoylesoftware.htmlunit.javascript.background.BackgroundJavaScriptFactory;
+import com.gargoylesoftware.htmlunit.javascript.background.JavaScriptJob;
 import com.gargoylesoftware.htmlunit.javascript.configuration.JsxClass;
 import com.gargoylesoftware.htmlunit.javascript.configuration.JsxConstant;
 import com.gargoylesoftware.htmlunit.javascript.configuration.JsxConstructor;
@@ -93,7 +97,10 @@ public class WebSocket extends EventTarget implements AutoCloseable {
     private String binaryType_ = "blob";
 
     private HtmlPage containingPage_;
-    private WebSocketClient client_;
+    private volatile WebSocketClient client_;
+    private Future<Session> connectFuture_;
+    private final Queue<Runnable> pendingEvents_ = new ArrayDeque<>();
+    private boolean dispatchJobPending_;
     private volatile Session incomingSession_;
     private Session outgoingSession_;
     private WebSocketListener listener_;
@@ -140,43 +147,14 @@ public class WebSocket extends EventTarget implements AutoCloseable {
             srcElementSet_ = webClient.getBrowserVersion().hasFeature(WEBSOCKET_SRC_ELEMENT_SET);
             originSet_ = webClient.getBrowserVersion().hasFeature(WEBSOCKET_ORIGIN_SET);
 
-            final WebClientOptions options = webClient.getOptions();
-            if (options.isUseInsecureSSL()) {
-                client_ = new WebSocketClient(new SslContextFactory(true), null, null);
-                // still use the deprecated method here to be backward compatible with older jersey versions
-                // see https://github.com/HtmlUnit/htmlunit/issues/36
-                // client_ = new WebSocketClient(new SslContextFactory.Client(true), null, null);
-            }
-            else {
-                client_ = new WebSocketClient();
-            }
-            client_.getHttpClient().setCookieStore(new WebSocketCookieStore(webClient));
-
-            final WebSocketPolicy policy = client_.getPolicy();
-            int size = options.getWebSocketMaxBinaryMessageSize();
-            if (size > 0) {
-                policy.setMaxBinaryMessageSize(size);
-            }
-            size = options.getWebSocketMaxBinaryMessageBufferSize();
-            if (size > 0) {
-                policy.setMaxBinaryMessageBufferSize(size);
-            }
-            size = options.getWebSocketMaxTextMessageSize();
-            if (size > 0) {
-                policy.setMaxTextMessageSize(size);
-            }
-            size = options.getWebSocketMaxTextMessageBufferSize();
-            if (size > 0) {
-                policy.setMaxTextMessageBufferSize(size);
-            }
-
-            client_.start();
+            client_ = webClient.getWebSocketClient();
             containingPage_.addAutoCloseable(this);
             url_ = new URI(url);
 
             webClient.getInternals().created(this);
 
-            final Future<Session> connectFuture = client_.connect(new WebSocketImpl(), url_);
+            connectFuture_ = client_.connect(new WebSocketImpl(), url_);
+            final Future<Session> connectFuture = connectFuture_;
             client_.getExecutor().execute(new Runnable() {
                 @Override
                 public void run() {
@@ -184,6 +162,9 @@ public class WebSocket extends EventTarget implements AutoCloseable {
                         setReadyState(CONNECTING);
                         incomingSession_ = connectFuture.get();
                     }
+                    catch (final CancellationException e) {
+                        // closed before the connection was established
+                    }
                     catch (final Exception e) {
                         if (LOG.isErrorEnabled()) {
                             LOG.error("WS connect error for url '" + url + "':", e);
@@ -200,6 +181,49 @@ public class WebSocket extends EventTarget implements AutoCloseable {
         }
     }
 
+    /**
+     * Creates and starts the client used by all the WebSockets of the given web client.
+     * @param webClient the web client
+     * @return the started client
+     * @throws Exception if the client could not be started
+     * @see WebClient#getWebSocketClient()
+     */
+    public static WebSocketClient startWebSocketClient(final WebClient webClient) throws Exception {
+        final WebClientOptions options = webClient.getOptions();
+        final WebSocketClient client;
+        if (options.isUseInsecureSSL()) {
+            client = new WebSocketClient(new SslContextFactory(true), null, null);
+            // still use the deprecated method here to be backward compatible with older jersey versions
+            // see https://github.com/HtmlUnit/htmlunit/issues/36
+            // client = new WebSocketClient(new SslContextFactory.Client(true), null, null);
+        }
+        else {
+            client = new WebSocketClient();
+        }
+        client.getHttpClient().setCookieStore(new WebSocketCookieStore(webClient));
+
+        final WebSocketPolicy policy = client.getPolicy();
+        int size = options.getWebSocketMaxBinaryMessageSize();
+        if (size > 0) {
+            policy.setMaxBinaryMessageSize(size);
+        }
+        size = options.getWebSocketMaxBinaryMessageBufferSize();
+        if (size > 0) {
+            policy.setMaxBinaryMessageBufferSize(size);
+        }
+        size = options.getWebSocketMaxTextMessageSize();
+        if (size > 0) {
+            policy.setMaxTextMessageSize(size);
+        }
+        size = options.getWebSocketMaxTextMessageBufferSize();
+        if (size > 0) {
+            policy.setMaxTextMessageBufferSize(size);
+        }
+
+        client.start();
+        return client;
+    }
+
     /**
      * JavaScript constructor.
      * @param cx the current context
@@ -363,10 +387,16 @@ public class WebSocket extends EventTarget implements AutoCloseable {
     }
 
     /**
-     * {@inheritDoc}
+     * Closes the connection when the page is unloaded.
+     * The events not yet dispatched to the page are dropped, the {@link WebSocketListener} still
+     * gets notified of the closing.
      */
     @Override
     public void close() throws Exception {
+        synchronized (pendingEvents_) {
+            pendingEvents_.clear();
+            dispatchJobPending_ = false;
+        }
         close(null, null);
     }
 
@@ -387,20 +417,20 @@ public class WebSocket extends EventTarget implements AutoCloseable {
             }
         }
 
-        try {
-            if (client_ != null) {
-                try {
-                    client_.stop();
-                }
-                catch (final UpgradeException e) {
-                    LOG.error("WS stop error (connection was not established so far)", e);
-                }
-                client_ = null;
-            }
-        }
-        catch (final Exception e) {
-            throw new RuntimeException(e);
+        // the client is shared, only abort a pending connection attempt
+        if (connectFuture_ != null) {
+            connectFuture_.cancel(true);
+            connectFuture_ = null;
         }
+        client_ = null;
+    }
+
+    /**
+     * Returns the client used for the connection; {@code null} after closing.
+     * @return the client
+     */
+    WebSocketClient getWebSocketClient() {
+        return client_;
     }
 
     /**
@@ -428,10 +458,53 @@ public class WebSocket extends EventTarget implements AutoCloseable {
         }
     }
 
+    /**
+     * Queues the given event dispatching; the events are dispatched by a job of the window.
+     * Events arriving while the job is pending are dispatched by the same job.
+     */
+    private void dispatch(final Runnable dispatcher) {
+        synchronized (pendingEvents_) {
+            pendingEvents_.add(dispatcher);
+            if (dispatchJobPending_) {
+                return;
+            }
+            dispatchJobPending_ = true;
+        }
+
+        final JavaScriptJob job = BackgroundJavaScriptFactory.theFactory()
+                .createJavaScriptJob(0, null, this::dispatchPendingEvents);
+        if (containingPage_.getEnclosingWindow().getJobManager().addJob(job, containingPage_) == 0) {
+            // the page is no longer shown, nobody will dispatch the events
+            synchronized (pendingEvents_) {
+                pendingEvents_.clear();
+                dispatchJobPending_ = false;
+            }
+        }
+    }
+
+    private void dispatchPendingEvents() {
+        while (true) {
+            final Runnable dispatcher;
+            synchronized (pendingEvents_) {
+                dispatcher = pendingEvents_.poll();
+                if (dispatcher == null) {
+                    dispatchJobPending_ = false;
+                    return;
+                }
+            }
+            dispatcher.run();
+        }
+    }
+
     private class WebSocketImpl extends WebSocketAdapter {
 
         @Override
         public void onWebSocketConnect(final Session session) {
+            if (client_ == null) {
+                // closed while connecting
+                session.close();
+                return;
+            }
             if (listener_ != null) {
                 listener_.onWebSocketConnect(session);
             }
@@ -439,13 +512,15 @@ public class WebSocket extends EventTarget implements AutoCloseable {
             setReadyState(OPEN);
             outgoingSession_ = session;
 
-            final Event openEvent = new Event();
-            openEvent.setType(Event.TYPE_OPEN);
-            if (srcElementSet_) {
-                openEvent.setSrcElement(WebSocket.this);
-            }
-            fire(openEvent);
-            callFunction(openHandler_, new Object[] {openEvent});
+            dispatch(() -> {
+                final Event openEvent = new Event();
+                openEvent.setType(Event.TYPE_OPEN);
+                if (srcElementSet_) {
+                    openEvent.setSrcElement(WebSocket.this);
+                }
+                fire(openEvent);
+                callFunction(openHandler_, new Object[] {openEvent});
+            });
         }
 
         @Override
@@ -457,12 +532,14 @@ public class WebSocket extends EventTarget implements AutoCloseable {
             setReadyState(CLOSED);
             outgoingSession_ = null;
 
-            final CloseEvent closeEvent = new CloseEvent();
-            closeEvent.setCode(statusCode);
-            closeEvent.setReason(reason);
-            closeEvent.setWasClean(true);
-            fire(closeEvent);
-            callFunction(closeHandler_, new Object[] {closeEvent});
+            dispatch(() -> {
+                final CloseEvent closeEvent = new CloseEvent();
+                closeEvent.setCode(statusCode);
+                closeEvent.setReason(reason);
+                closeEvent.setWasClean(true);
+                fire(closeEvent);
+                callFunction(closeHandler_, new Object[] {closeEvent});
+            });
         }
 
         @Override
@@ -472,15 +549,17 @@ public class WebSocket extends EventTarget implements AutoCloseable {
             }
             super.onWebSocketText(message);
 
-            final MessageEvent msgEvent = new MessageEvent(message);
-            if (originSet_) {
-                msgEvent.setOrigin(getUrl());
-            }
-            if (srcElementSet_) {
-                msgEvent.setSrcElement(WebSocket.this);
-            }
-            fire(msgEvent);
-            callFunction(messageHandler_, new Object[] {msgEvent});
+            dispatch(() -> {
+                final MessageEvent msgEvent = new MessageEvent(message);
+                if (originSet_) {
+                    msgEvent.setOrigin(getUrl());
+                }
+                if (srcElementSet_) {
+                    msgEvent.setSrcElement(WebSocket.this);
+                }
+                fire(msgEvent);
+                callFunction(messageHandler_, new Object[] {msgEvent});
+            });
         }
 
         @Override
@@ -490,20 +569,24 @@ public class WebSocket extends EventTarget implements AutoCloseable {
             }
             super.onWebSocketBinary(data, offset, length);
 
+            // the data array is reused by jetty, copy it now
             final NativeArrayBuffer buffer = new NativeArrayBuffer(length);
             System.arraycopy(data, offset, buffer.getBuffer(), 0, length);
-            buffer.setParentScope(getParentScope());
-            buffer.setPrototype(ScriptableObject.getClassPrototype(getWindow(), buffer.getClassName()));
 
-            final MessageEvent msgEvent = new MessageEvent(buffer);
-            if (originSet_) {
-                msgEvent.setOrigin(getUrl());
-            }
-            if (srcElementSet_) {
-                msgEvent.setSrcElement(WebSocket.this);
-            }
-            fire(msgEvent);
-            callFunction(messageHandler_, new Object[] {msgEvent});
+            dispatch(() -> {
+                buffer.setParentScope(getParentScope());
+                buffer.setPrototype(ScriptableObject.getClassPrototype(getWindow(), buffer.getClassName()));
+
+                final MessageEvent msgEvent = new MessageEvent(buffer);
+                if (originSet_) {
+                    msgEvent.setOrigin(getUrl());
+                }
+                if (srcElementSet_) {
+                    msgEvent.setSrcElement(WebSocket.this);
+                }
+                fire(msgEvent);
+                callFunction(messageHandler_, new Object[] {msgEvent});
+            });
         }
 
         @Override
@@ -515,20 +598,22 @@ public class WebSocket extends EventTarget implements AutoCloseable {
             setReadyState(CLOSED);
             outgoingSession_ = null;
 
-            final Event errorEvent = new Event();
-            errorEvent.setType(Event.TYPE_ERROR);
-            if (srcElementSet_) {
-                errorEvent.setSrcElement(WebSocket.this);
-            }
-            fire(errorEvent);
-            callFunction(errorHandler_, new Object[] {errorEvent});
-
-            final CloseEvent closeEvent = new CloseEvent();
-            closeEvent.setCode(1006);
-            closeEvent.setReason(cause.getMessage());
-            closeEvent.setWasClean(false);
-            fire(closeEvent);
-            callFunction(closeHandler_, new Object[] {closeEvent});
+            dispatch(() -> {
+                final Event errorEvent = new Event();
+                errorEvent.setType(Event.TYPE_ERROR);
+                if (srcElementSet_) {
+                    errorEvent.setSrcElement(WebSocket.this);
+                }
+                fire(errorEvent);
+                callFunction(errorHandler_, new Object[] {errorEvent});
+
+                final CloseEvent closeEvent = new CloseEvent();
+                closeEvent.setCode(1006);
+                closeEvent.setReason(cause.getMessage());
+                closeEvent.setWasClean(false);
+                fire(closeEvent);
+                callFunction(closeHandler_, new Object[] {closeEvent});
+            });
         }
 
         private void fire(final Event evt) {
@@ -34,15 +34,18 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.StringUtils;
@@ -105,6 +108,7 @@ import com.gargoylesoftware.htmlunit.javascript.host.crypto.Crypto;
 import com.gargoylesoftware.htmlunit.javascript.host.css.CSS2Properties;
 import com.gargoylesoftware.htmlunit.javascript.host.css.CSSStyleSheet;
 import com.gargoylesoftware.htmlunit.javascript.host.css.MediaQueryList;
+import com.gargoylesoftware.htmlunit.javascript.host.css.SelectorDependencies;
 import com.gargoylesoftware.htmlunit.javascript.host.css.StyleMedia;
 import com.gargoylesoftware.htmlunit.javascript.host.css.StyleSheetList;
 import com.gargoylesoftware.htmlunit.javascript.host.dom.Document;
@@ -209,6 +213,9 @@ public class Window extends EventTarget implements Function, AutoCloseable {
 
     private final EnumMap<Type, Storage> storages_ = new EnumMap<>(Type.class);
 
+    /** The (lower case) types of all events a listener or a handler was ever registered for; only grows. */
+    private final Set<String> listenedEventTypes_ = ConcurrentHashMap.newKeySet();
+
     private final transient List<AnimationFrame> animationFrames_ = new ArrayList<>();
 
     private static final class AnimationFrame {
@@ -225,75 +232,105 @@ public class Window extends EventTarget implements Function, AutoCloseable {
      * Cache computed styles when possible, because their calculation is very expensive.
      * We use a weak hash map because we don't want this cache to be the only reason
      * nodes are kept around in the JVM, if all other references to them are gone.
+     * Together with the styles, the dependencies of all the selectors used to compute
+     * them are collected; this allows to evict only the styles a change can affect.
      */
     private static final class CSSPropertiesCache implements Serializable {
-        private transient WeakHashMap<Element, Map<String, CSS2Properties>> computedStyles_ = new WeakHashMap<>();
+        private transient WeakHashMap<DomNode, Map<String, CSS2Properties>> computedStyles_ = new WeakHashMap<>();
+        private transient Set<SelectorDependencies> collectedDependencies_ =
+                Collections.newSetFromMap(new IdentityHashMap<SelectorDependencies, Boolean>());
+        private transient SelectorDependencies dependencies_ = new SelectorDependencies();
 
         public synchronized CSS2Properties get(final Element element, final String normalizedPseudo) {
-            final Map<String, CSS2Properties> elementMap = computedStyles_.get(element);
+            final Map<String, CSS2Properties> elementMap = computedStyles_.get(element.getDomNodeOrDie());
             if (elementMap != null) {
                 return elementMap.get(normalizedPseudo);
             }
             return null;
         }
 
-        public synchronized void put(final Element element, final String normalizedPseudo, final CSS2Properties style) {
-            Map<String, CSS2Properties> elementMap = computedStyles_.get(element);
+        public synchronized void put(final Element element, final String normalizedPseudo, final CSS2Properties style,
+                final List<SelectorDependencies> dependencies) {
+            final DomNode node = element.getDomNodeOrDie();
+            Map<String, CSS2Properties> elementMap = computedStyles_.get(node);
             if (elementMap == null) {
                 elementMap = new WeakHashMap<>();
-                computedStyles_.put(element, elementMap);
+                computedStyles_.put(node, elementMap);
             }
             elementMap.put(normalizedPseudo, style);
+
+            for (final SelectorDependencies dependency : dependencies) {
+                if (collectedDependencies_.add(dependency)) {
+                    dependencies_.addAll(dependency);
+                }
+            }
         }
 
-        public synchronized void nodeChanged(final DomNode changed, final boolean clearParents) {
-            final Iterator<Map.Entry<Element, Map<String, CSS2Properties>>> i = computedStyles_.entrySet().iterator();
-            while (i.hasNext()) {
-                final Map.Entry<Element, Map<String, CSS2Properties>> entry = i.next();
-                final DomNode node = entry.getKey().getDomNodeOrDie();
-                if (changed == node
-                    || changed.getParentNode() == node.getParentNode()
-                    || changed.isAncestorOf(node)
-                    || clearParents && node.isAncestorOf(changed)) {
-                    i.remove();
+        /**
+         * Evicts the styles a change of the given node might affect.
+         * @param changed the changed node
+         * @param parent the parent of the changed node (the former one, if the node was removed)
+         * @param attributeName the name of the changed attribute or {@code null} if the node was added or removed
+         */
+        public synchronized void nodeChanged(final DomNode changed, final DomNode parent, final String attributeName) {
+            if (computedStyles_.isEmpty()) {
+                return;
+            }
+
+            final boolean structural = attributeName == null;
+            final boolean affectsLayout = ATTRIBUTES_AFFECTING_PARENT.contains(attributeName);
+            final boolean affectsSelectors = structural || dependencies_.dependsOnAttribute(attributeName);
+
+            // the node itself and, because of inheritance, all descendants
+            removeSubtree(changed);
+
+            if (parent == null || !(affectsLayout || affectsSelectors)) {
+                return;
+            }
+
+            // the siblings, because of their position and of the sibling combinators
+            final boolean siblingSelectors = affectsSelectors && dependencies_.dependsOnSiblings();
+            for (final DomNode sibling : parent.getChildren()) {
+                if (siblingSelectors) {
+                    removeSubtree(sibling);
+                }
+                else {
+                    computedStyles_.remove(sibling);
                 }
             }
 
-            // maybe this is a better solution but i have to think a bit more about this
-            //
-            //            if (computedStyles_.isEmpty()) {
-            //                return;
-            //            }
-            //
-            //            // remove all siblings
-            //            DomNode parent = changed.getParentNode();
-            //            if (parent != null) {
-            //                for (DomNode sibling : parent.getChildNodes()) {
-            //                    computedStyles_.remove(sibling.getScriptableObject());
-            //                }
-            //
-            //                if (clearParents) {
-            //                    // remove all parents
-            //                    while (parent != null) {
-            //                        computedStyles_.remove(parent.getScriptableObject());
-            //                        parent = parent.getParentNode();
-            //                    }
-            //                }
-            //            }
-            //
-            //            // remove changed itself and all descendants
-            //            computedStyles_.remove(changed.getScriptableObject());
-            //            for (DomNode descendant : changed.getDescendants()) {
-            //                computedStyles_.remove(descendant.getScriptableObject());
-            //            }
+            if (affectsLayout) {
+                for (DomNode ancestor = parent; ancestor != null; ancestor = ancestor.getParentNode()) {
+                    computedStyles_.remove(ancestor);
+                }
+            }
+            else if (structural && dependencies_.dependsOnChildren()) {
+                computedStyles_.remove(parent);
+            }
+        }
+
+        private void removeSubtree(final DomNode root) {
+            computedStyles_.remove(root);
+            for (final DomNode descendant : root.getDescendants()) {
+                if (computedStyles_.isEmpty()) {
+                    return;
+                }
+                computedStyles_.remove(descendant);
+            }
+        }
+
+        public synchronized boolean dependsOnPseudoClass(final String pseudoClass) {
+            return !computedStyles_.isEmpty() && dependencies_.dependsOnPseudoClass(pseudoClass);
         }
 
         public synchronized void clear() {
             computedStyles_.clear();
+            collectedDependencies_.clear();
+            dependencies_ = new SelectorDependencies();
         }
 
         public synchronized Map<String, CSS2Properties> remove(final Element element) {
-            return computedStyles_.remove(element);
+            return computedStyles_.remove(element.getDomNodeOrDie());
         }
     }
 
@@ -506,6 +543,31 @@ public class Window extends EventTarget implements Function, AutoCloseable {
         currentEvent_ = event;
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Remembers that a listener or a handler for the given event type was registered
+     * on an object of this window.
+     * @param eventType the event type (like "click")
+     */
+    public void addListenedEventType(final String eventType) {
+        listenedEventTypes_.add(eventType.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns whether a listener or a handler for the given event type was ever registered
+     * on an object of this window. The answer {@code false} does not guarantee that there
+     * is no listener at all, handlers defined by attributes are only registered when
+     * the JavaScript object of the element is created.
+     * @param eventType the event type (like "click")
+     * @return {@code true} if a listener or a handler was registered
+     */
+    public boolean isListenedEventType(final String eventType) {
+        return listenedEventTypes_.contains(eventType.toLowerCase(Locale.ROOT));
+    }
+
     /**
      * Opens a new window.
      *
@@ -1864,6 +1926,7 @@ public class Window extends EventTarget implements Function, AutoCloseable {
         if (ownerDocument instanceof HTMLDocument) {
             final StyleSheetList sheets = ((HTMLDocument) ownerDocument).getStyleSheets();
             final boolean trace = LOG.isTraceEnabled();
+            final List<SelectorDependencies> dependencies = new ArrayList<>();
             for (int i = 0; i < sheets.getLength(); i++) {
                 final CSSStyleSheet sheet = (CSSStyleSheet) sheets.item(i);
                 if (sheet.isActive() && sheet.isEnabled()) {
@@ -1871,10 +1934,11 @@ public class Window extends EventTarget implements Function, AutoCloseable {
                         LOG.trace("modifyIfNecessary: " + sheet + ", " + style + ", " + e);
                     }
                     sheet.modifyIfNecessary(style, e, normalizedPseudo);
+                    dependencies.add(sheet.getSelectorDependencies());
                 }
             }
 
-            cssPropertiesCache_.put(e, normalizedPseudo, style);
+            cssPropertiesCache_.put(e, normalizedPseudo, style, dependencies);
         }
         return style;
     }
@@ -2047,6 +2111,17 @@ public class Window extends EventTarget implements Function, AutoCloseable {
         cssPropertiesCache_.remove(element);
     }
 
+    /**
+     * Clears the computed styles if a selector depends on the given pseudo class,
+     * because the state of an element (e.g. <tt>hover</tt>) has changed.
+     * @param pseudoClass the name of the pseudo class
+     */
+    public void clearComputedStylesDependingOn(final String pseudoClass) {
+        if (cssPropertiesCache_.dependsOnPseudoClass(pseudoClass)) {
+            cssPropertiesCache_.clear();
+        }
+    }
+
     /**
      * Clears the computed styles for a specific {@link Element}
      * and all parent elements.
@@ -2094,6 +2169,10 @@ public class Window extends EventTarget implements Function, AutoCloseable {
      *
      * <p>Additionally, whenever a <tt>style</tt> node or a <tt>link</tt> node with <tt>rel=stylesheet</tt> is added or
      * removed, all elements should be removed from the computed style cache.</p>
+     *
+     * <p>The {@link SelectorDependencies} of the stylesheets in use narrow this down: if no selector refers to a
+     * changed attribute and the attribute does not affect the layout, only the node and its descendants are
+     * evicted; the descendants of the siblings are evicted only if a selector depends on siblings.</p>
      */
     private class DomHtmlAttributeChangeListenerImpl implements DomChangeListener, HtmlAttributeChangeListener {
 
@@ -2102,7 +2181,7 @@ public class Window extends EventTarget implements Function, AutoCloseable {
          */
         @Override
         public void nodeAdded(final DomChangeEvent event) {
-            nodeChanged(event.getChangedNode(), null);
+            nodeChanged(event.getChangedNode(), event.getParentNode(), null);
         }
 
         /**
@@ -2110,7 +2189,7 @@ public class Window extends EventTarget implements Function, AutoCloseable {
          */
         @Override
         public void nodeDeleted(final DomChangeEvent event) {
-            nodeChanged(event.getChangedNode(), null);
+            nodeChanged(event.getChangedNode(), event.getParentNode(), null);
         }
 
         /**
@@ -2118,7 +2197,8 @@ public class Window extends EventTarget implements Function, AutoCloseable {
          */
         @Override
         public void attributeAdded(final HtmlAttributeChangeEvent event) {
-            nodeChanged(event.getHtmlElement(), event.getName());
+            final HtmlElement element = event.getHtmlElement();
+            nodeChanged(element, element.getParentNode(), event.getName());
         }
 
         /**
@@ -2126,7 +2206,8 @@ public class Window extends EventTarget implements Function, AutoCloseable {
          */
         @Override
         public void attributeRemoved(final HtmlAttributeChangeEvent event) {
-            nodeChanged(event.getHtmlElement(), event.getName());
+            final HtmlElement element = event.getHtmlElement();
+            nodeChanged(element, element.getParentNode(), event.getName());
         }
 
         /**
@@ -2134,10 +2215,11 @@ public class Window extends EventTarget implements Function, AutoCloseable {
          */
         @Override
         public void attributeReplaced(final HtmlAttributeChangeEvent event) {
-            nodeChanged(event.getHtmlElement(), event.getName());
+            final HtmlElement element = event.getHtmlElement();
+            nodeChanged(element, element.getParentNode(), event.getName());
         }
 
-        private void nodeChanged(final DomNode changed, final String attribName) {
+        private void nodeChanged(final DomNode changed, final DomNode parent, final String attribName) {
             // If a stylesheet was changed, all of our calculations could be off; clear the cache.
             if (changed instanceof HtmlStyle) {
                 clearComputedStyles();
@@ -2152,8 +2234,7 @@ public class Window extends EventTarget implements Function, AutoCloseable {
             }
 
             // Apparently it wasn't a stylesheet that changed; be semi-smart about what we evict and when.
-            final boolean clearParents = ATTRIBUTES_AFFECTING_PARENT.contains(attribName);
-            cssPropertiesCache_.nodeChanged(changed, clearParents);
+            cssPropertiesCache_.nodeChanged(changed, parent, attribName);
         }
     }
 
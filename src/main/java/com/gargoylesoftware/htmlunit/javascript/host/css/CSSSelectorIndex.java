@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.host.css;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.gargoylesoftware.css.dom.CSSStyleRuleImpl;
+import com.gargoylesoftware.css.dom.MediaListImpl;
+import com.gargoylesoftware.css.parser.condition.Condition;
+import com.gargoylesoftware.css.parser.selector.ChildSelector;
+import com.gargoylesoftware.css.parser.selector.DescendantSelector;
+import com.gargoylesoftware.css.parser.selector.DirectAdjacentSelector;
+import com.gargoylesoftware.css.parser.selector.ElementSelector;
+import com.gargoylesoftware.css.parser.selector.GeneralAdjacentSelector;
+import com.gargoylesoftware.css.parser.selector.Selector;
+import com.gargoylesoftware.css.parser.selector.SimpleSelector;
+import com.gargoylesoftware.htmlunit.html.DomElement;
+import com.gargoylesoftware.htmlunit.html.DomNode;
+
+/**
+ * The index of the style rules of a stylesheet, used to find the rules that might match an element
+ * without testing all the selectors.
+ *
+ * <p>Every selector is stored once, keyed by the most selective part of its right-most compound
+ * selector: the id, a class, an attribute name or the tag name (in this order); selectors
+ * without any of these are tested for every element. For the ids, classes and tag names required
+ * for the ancestors of the element, a few hashes are stored with the selector; these are checked
+ * against a Bloom filter built from the ancestors before the selector is tested.</p>
+ *
+ * <p>The rules of <tt>@media</tt> rules are stored in child indexes.</p>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class CSSSelectorIndex {
+
+    private static final Pattern UNESCAPE_SELECTOR = Pattern.compile("\\\\([\\[\\]\\.:])");
+
+    /** The max number of ancestor hashes stored per selector. */
+    private static final int MAX_ANCESTOR_HASHES = 4;
+
+    private static final int TAG_SALT = 1;
+    private static final int ID_SALT = 2;
+    private static final int CLASS_SALT = 3;
+
+    private final MediaListImpl mediaList_;
+    private final List<CSSSelectorIndex> children_ = new ArrayList<>();
+
+    private final Map<String, List<Entry>> idSelectors_ = new HashMap<>();
+    private final Map<String, List<Entry>> classSelectors_ = new HashMap<>();
+    private final Map<String, List<Entry>> attributeSelectors_ = new HashMap<>();
+    private final Map<String, List<Entry>> elementSelectors_ = new HashMap<>();
+    private final List<Entry> otherSelectors_ = new ArrayList<>();
+    private int size_;
+
+    /**
+     * A selector of a rule.
+     */
+    static final class Entry implements Comparable<Entry> {
+        private final Selector selector_;
+        private final CSSStyleRuleImpl rule_;
+        private final int position_;
+        private final int[] ancestorHashes_;
+
+        private Entry(final Selector selector, final CSSStyleRuleImpl rule, final int position) {
+            selector_ = selector;
+            rule_ = rule;
+            position_ = position;
+
+            final List<Integer> hashes = new ArrayList<>();
+            collectAncestorHashes(selector, false, hashes);
+            ancestorHashes_ = new int[hashes.size()];
+            for (int i = 0; i < ancestorHashes_.length; i++) {
+                ancestorHashes_[i] = hashes.get(i);
+            }
+        }
+
+        /**
+         * @return the selector
+         */
+        Selector getSelector() {
+            return selector_;
+        }
+
+        /**
+         * @return the rule
+         */
+        CSSStyleRuleImpl getRule() {
+            return rule_;
+        }
+
+        private boolean mightMatch(final AncestorFilter filter) {
+            for (final int hash : ancestorHashes_) {
+                if (!filter.mightContain(hash)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int compareTo(final Entry other) {
+            return Integer.compare(position_, other.position_);
+        }
+    }
+
+    /**
+     * Bloom filter of the tag names, ids and classes of an element and its ancestors.
+     */
+    static final class AncestorFilter {
+        private static final int MASK = 1023;
+        private final long[] bits_ = new long[(MASK + 1) / 64];
+
+        /**
+         * Creates the filter for the given element.
+         * @param element the element
+         */
+        AncestorFilter(final DomElement element) {
+            // a superset of the elements the selectors walk through is fine, a missing one is not
+            for (DomNode node = element; node instanceof DomElement; node = node.getParentNode()) {
+                add((DomElement) node);
+            }
+        }
+
+        private void add(final DomElement element) {
+            add(hash(TAG_SALT, element.getLowercaseName()));
+            final String id = element.getId();
+            if (!id.isEmpty()) {
+                add(hash(ID_SALT, id));
+            }
+            final String classes = element.getAttributeDirect("class");
+            if (!classes.isEmpty()) {
+                for (final String cls : StringUtils.split(classes)) {
+                    add(hash(CLASS_SALT, cls));
+                }
+            }
+        }
+
+        private void add(final int hash) {
+            set(hash & MASK);
+            set((hash >>> 16) & MASK);
+        }
+
+        private void set(final int bit) {
+            bits_[bit >>> 6] |= 1L << bit;
+        }
+
+        private boolean isSet(final int bit) {
+            return (bits_[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        boolean mightContain(final int hash) {
+            return isSet(hash & MASK) && isSet((hash >>> 16) & MASK);
+        }
+    }
+
+    /**
+     * Creates a new index without media.
+     */
+    CSSSelectorIndex() {
+        this(null);
+    }
+
+    private CSSSelectorIndex(final MediaListImpl mediaList) {
+        mediaList_ = mediaList;
+    }
+
+    /**
+     * @return the media list or {@code null} if the rules are not restricted to any media
+     */
+    MediaListImpl getMediaList() {
+        return mediaList_;
+    }
+
+    /**
+     * @return whether the rules are restricted to some media
+     */
+    boolean hasMedia() {
+        return mediaList_ != null && mediaList_.getLength() > 0;
+    }
+
+    /**
+     * @return the indexes for the rules of the media rules
+     */
+    List<CSSSelectorIndex> getChildren() {
+        return children_;
+    }
+
+    /**
+     * Adds a child index for rules restricted to the given media.
+     * @param mediaList the media
+     * @return the new child index
+     */
+    CSSSelectorIndex addMedia(final MediaListImpl mediaList) {
+        final CSSSelectorIndex child = new CSSSelectorIndex(mediaList);
+        children_.add(child);
+        return child;
+    }
+
+    /**
+     * Adds the given selector of the given rule.
+     * @param selector the selector
+     * @param rule the rule
+     */
+    void add(final Selector selector, final CSSStyleRuleImpl rule) {
+        final Entry entry = new Entry(selector, rule, size_++);
+
+        final SimpleSelector simpleSelector = selector.getSimpleSelector();
+        if (Selector.SelectorType.ELEMENT_NODE_SELECTOR != simpleSelector.getSelectorType()) {
+            otherSelectors_.add(entry);
+            return;
+        }
+
+        final ElementSelector es = (ElementSelector) simpleSelector;
+        String className = null;
+        String attributeName = null;
+        final List<Condition> conditions = es.getConditions();
+        if (conditions != null) {
+            for (final Condition condition : conditions) {
+                switch (condition.getConditionType()) {
+                    case ID_CONDITION:
+                        add(idSelectors_, condition.getValue(), entry);
+                        return;
+
+                    case CLASS_CONDITION:
+                        if (className == null) {
+                            className = unescape(condition.getValue());
+                        }
+                        break;
+
+                    case ATTRIBUTE_CONDITION:
+                    case PREFIX_ATTRIBUTE_CONDITION:
+                    case SUFFIX_ATTRIBUTE_CONDITION:
+                    case SUBSTRING_ATTRIBUTE_CONDITION:
+                    case BEGIN_HYPHEN_ATTRIBUTE_CONDITION:
+                    case ONE_OF_ATTRIBUTE_CONDITION:
+                        if (attributeName == null && condition.getLocalName() != null) {
+                            attributeName = condition.getLocalName().toLowerCase(Locale.ROOT);
+                        }
+                        break;
+
+                    default:
+                }
+            }
+        }
+
+        if (className != null) {
+            add(classSelectors_, className, entry);
+        }
+        else if (attributeName != null) {
+            add(attributeSelectors_, attributeName, entry);
+        }
+        else if (es.getLocalNameLowerCase() != null) {
+            add(elementSelectors_, es.getLocalNameLowerCase(), entry);
+        }
+        else {
+            otherSelectors_.add(entry);
+        }
+    }
+
+    private static void add(final Map<String, List<Entry>> map, final String key, final Entry entry) {
+        List<Entry> entries = map.get(key);
+        if (entries == null) {
+            entries = new ArrayList<>(1);
+            map.put(key, entries);
+        }
+        entries.add(entry);
+    }
+
+    /**
+     * Returns the entries (of this index, not of the children) that might match the given element,
+     * in the order of the stylesheet.
+     * @param element the element
+     * @return the candidates
+     */
+    List<Entry> getCandidates(final DomElement element) {
+        final List<Entry> candidates = new ArrayList<>(otherSelectors_);
+
+        if (!idSelectors_.isEmpty()) {
+            addAll(candidates, idSelectors_.get(element.getId()));
+        }
+        if (!classSelectors_.isEmpty()) {
+            final String classes = element.getAttributeDirect("class");
+            if (!classes.isEmpty()) {
+                for (final String cls : StringUtils.split(classes)) {
+                    addAll(candidates, classSelectors_.get(cls));
+                }
+            }
+        }
+        if (!attributeSelectors_.isEmpty()) {
+            for (final String name : element.getAttributesMap().keySet()) {
+                addAll(candidates, attributeSelectors_.get(name.toLowerCase(Locale.ROOT)));
+            }
+        }
+        addAll(candidates, elementSelectors_.get(element.getLowercaseName()));
+
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        Collections.sort(candidates);
+
+        // remove duplicates (e.g. class="a a") and the ones rejected by the ancestors
+        AncestorFilter filter = null;
+        final List<Entry> result = new ArrayList<>(candidates.size());
+        Entry last = null;
+        for (final Entry entry : candidates) {
+            if (entry != last) {
+                last = entry;
+                if (entry.ancestorHashes_.length > 0) {
+                    if (filter == null) {
+                        filter = new AncestorFilter(element);
+                    }
+                    if (!entry.mightMatch(filter)) {
+                        continue;
+                    }
+                }
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private static void addAll(final List<Entry> candidates, final List<Entry> entries) {
+        if (entries != null) {
+            candidates.addAll(entries);
+        }
+    }
+
+    /**
+     * Collects the hashes of the tag names, ids and classes the ancestors must have.
+     * @param selector the selector
+     * @param ancestor whether the selector describes an ancestor
+     * @param hashes the hashes
+     */
+    private static void collectAncestorHashes(final Selector selector, final boolean ancestor,
+            final List<Integer> hashes) {
+        if (hashes.size() >= MAX_ANCESTOR_HASHES) {
+            return;
+        }
+
+        switch (selector.getSelectorType()) {
+            case ELEMENT_NODE_SELECTOR:
+                if (ancestor) {
+                    final ElementSelector es = (ElementSelector) selector;
+                    final List<Condition> conditions = es.getConditions();
+                    if (conditions != null) {
+                        for (final Condition condition : conditions) {
+                            if (hashes.size() < MAX_ANCESTOR_HASHES) {
+                                switch (condition.getConditionType()) {
+                                    case ID_CONDITION:
+                                        hashes.add(hash(ID_SALT, condition.getValue()));
+                                        break;
+
+                                    case CLASS_CONDITION:
+                                        hashes.add(hash(CLASS_SALT, unescape(condition.getValue())));
+                                        break;
+
+                                    default:
+                                }
+                            }
+                        }
+                    }
+                    if (es.getLocalNameLowerCase() != null && hashes.size() < MAX_ANCESTOR_HASHES) {
+                        hashes.add(hash(TAG_SALT, es.getLocalNameLowerCase()));
+                    }
+                }
+                break;
+
+            case DESCENDANT_SELECTOR:
+                final DescendantSelector ds = (DescendantSelector) selector;
+                collectAncestorHashes(ds.getSimpleSelector(), ancestor, hashes);
+                collectAncestorHashes(ds.getAncestorSelector(), true, hashes);
+                break;
+
+            case CHILD_SELECTOR:
+                final ChildSelector cs = (ChildSelector) selector;
+                collectAncestorHashes(cs.getSimpleSelector(), ancestor, hashes);
+                collectAncestorHashes(cs.getAncestorSelector(), true, hashes);
+                break;
+
+            case DIRECT_ADJACENT_SELECTOR:
+                // a sibling is not an ancestor, but the ancestors of the sibling are
+                final DirectAdjacentSelector das = (DirectAdjacentSelector) selector;
+                collectAncestorHashes(das.getSimpleSelector(), ancestor, hashes);
+                collectAncestorHashes(das.getSelector(), false, hashes);
+                break;
+
+            case GENERAL_ADJACENT_SELECTOR:
+                final GeneralAdjacentSelector gas = (GeneralAdjacentSelector) selector;
+                collectAncestorHashes(gas.getSimpleSelector(), ancestor, hashes);
+                collectAncestorHashes(gas.getSelector(), false, hashes);
+                break;
+
+            default:
+        }
+    }
+
+    private static String unescape(final String value) {
+        if (value.indexOf('\\') > -1) {
+            return UNESCAPE_SELECTOR.matcher(value).replaceAll("$1");
+        }
+        return value;
+    }
+
+    private static int hash(final int salt, final String value) {
+        int h = value.hashCode() * 31 + salt;
+        // spread the bits, both halves are used by the filter
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
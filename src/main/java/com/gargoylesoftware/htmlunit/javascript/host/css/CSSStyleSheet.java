@@ -34,7 +34,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -66,7 +65,6 @@ import com.gargoylesoftware.css.parser.CSSOMParser;
 import com.gargoylesoftware.css.parser.CSSParseException;
 import com.gargoylesoftware.css.parser.InputSource;
 import com.gargoylesoftware.css.parser.condition.Condition;
-import com.gargoylesoftware.css.parser.condition.Condition.ConditionType;
 import com.gargoylesoftware.css.parser.javacc.CSS3Parser;
 import com.gargoylesoftware.css.parser.media.MediaQuery;
 import com.gargoylesoftware.css.parser.selector.ChildSelector;
@@ -147,6 +145,13 @@ public class CSSStyleSheet extends StyleSheet {
     private com.gargoylesoftware.htmlunit.javascript.host.css.CSSRuleList cssRules_;
     private List<Integer> cssRulesIndexFix_;
 
+    /** The dependencies of the selectors and the rule index they have been collected from. */
+    private transient SelectorDependencies selectorDependencies_;
+    private transient CSSSelectorIndex selectorDependenciesIndex_;
+
+    /** The index of the style rules, built on first use and dropped if the rules change. */
+    private transient volatile CSSSelectorIndex ruleIndex_;
+
     /** The CSS import rules and their corresponding stylesheets. */
     private final Map<CSSImportRuleImpl, CSSStyleSheet> imports_ = new HashMap<>();
 
@@ -261,9 +266,9 @@ public class CSSStyleSheet extends StyleSheet {
 
         final BrowserVersion browser = getBrowserVersion();
         final DomElement e = element.getDomNodeOrDie();
-        final List<CSSStyleSheetImpl.SelectorEntry> matchingRules =
+        final List<CSSSelectorIndex.Entry> matchingRules =
                 selects(getRuleIndex(), this, browser, e, pseudoElement, false);
-        for (CSSStyleSheetImpl.SelectorEntry entry : matchingRules) {
+        for (CSSSelectorIndex.Entry entry : matchingRules) {
             final CSSStyleDeclarationImpl dec = entry.getRule().getStyle();
             style.applyStyleFromSelector(dec, entry.getSelector());
         }
@@ -1114,6 +1119,7 @@ public class CSSStyleSheet extends StyleSheet {
 
         // reset our index also
         getWrappedSheet().resetRuleIndex();
+        ruleIndex_ = null;
     }
 
     private int fixIndex(int index) {
@@ -1551,47 +1557,66 @@ public class CSSStyleSheet extends StyleSheet {
         }
     }
 
-    private CSSStyleSheetImpl.CSSStyleSheetRuleIndex getRuleIndex() {
-        final CSSStyleSheetImpl styleSheet = getWrappedSheet();
-        CSSStyleSheetImpl.CSSStyleSheetRuleIndex index = styleSheet.getRuleIndex();
-
+    private CSSSelectorIndex getRuleIndex() {
+        CSSSelectorIndex index = ruleIndex_;
         if (index == null) {
-            index = new CSSStyleSheetImpl.CSSStyleSheetRuleIndex();
-            final CSSRuleListImpl ruleList = styleSheet.getCssRules();
+            index = new CSSSelectorIndex();
+            final CSSRuleListImpl ruleList = getWrappedSheet().getCssRules();
             index(index, ruleList, new HashSet<String>());
 
-            styleSheet.setRuleIndex(index);
+            ruleIndex_ = index;
         }
         return index;
     }
 
-    private void index(final CSSStyleSheetImpl.CSSStyleSheetRuleIndex index, final CSSRuleListImpl ruleList,
+    /**
+     * Returns what the selectors of this stylesheet (including the imported ones) depend on.
+     * The result is collected again every time the rule index is rebuilt.
+     * @return the dependencies
+     */
+    public SelectorDependencies getSelectorDependencies() {
+        final CSSSelectorIndex index = getRuleIndex();
+        if (selectorDependencies_ == null || selectorDependenciesIndex_ != index) {
+            final SelectorDependencies dependencies = new SelectorDependencies();
+            collectSelectorDependencies(dependencies, getWrappedSheet().getCssRules(), new HashSet<String>());
+            selectorDependencies_ = dependencies;
+            selectorDependenciesIndex_ = index;
+        }
+        return selectorDependencies_;
+    }
+
+    private void collectSelectorDependencies(final SelectorDependencies dependencies,
+            final CSSRuleListImpl ruleList, final Set<String> alreadyProcessing) {
+        // the media is ignored; collecting too much is fine
+        for (AbstractCSSRuleImpl rule : ruleList.getRules()) {
+            if (rule instanceof CSSStyleRuleImpl) {
+                for (Selector selector : ((CSSStyleRuleImpl) rule).getSelectors()) {
+                    dependencies.add(selector);
+                }
+            }
+            else if (rule instanceof CSSImportRuleImpl) {
+                // the imports are already loaded by getRuleIndex()
+                final CSSStyleSheet sheet = imports_.get(rule);
+                if (sheet != null && alreadyProcessing.add(sheet.getUri())) {
+                    collectSelectorDependencies(dependencies, sheet.getWrappedSheet().getCssRules(),
+                            alreadyProcessing);
+                }
+            }
+            else if (rule instanceof CSSMediaRuleImpl) {
+                collectSelectorDependencies(dependencies, ((CSSMediaRuleImpl) rule).getCssRules(),
+                        alreadyProcessing);
+            }
+        }
+    }
+
+    private void index(final CSSSelectorIndex index, final CSSRuleListImpl ruleList,
             final Set<String> alreadyProcessing) {
 
         for (AbstractCSSRuleImpl rule : ruleList.getRules()) {
             if (rule instanceof CSSStyleRuleImpl) {
                 final CSSStyleRuleImpl styleRule = (CSSStyleRuleImpl) rule;
-                final SelectorList selectors = styleRule.getSelectors();
-                for (Selector selector : selectors) {
-                    final SimpleSelector simpleSel = selector.getSimpleSelector();
-                    if (SelectorType.ELEMENT_NODE_SELECTOR == simpleSel.getSelectorType()) {
-                        final ElementSelector es = (ElementSelector) simpleSel;
-                        boolean wasClass = false;
-                        final List<Condition> conds = es.getConditions();
-                        if (conds != null && conds.size() == 1) {
-                            final Condition c = conds.get(0);
-                            if (ConditionType.CLASS_CONDITION == c.getConditionType()) {
-                                index.addClassSelector(es, c.getValue(), selector, styleRule);
-                                wasClass = true;
-                            }
-                        }
-                        if (!wasClass) {
-                            index.addElementSelector(es, selector, styleRule);
-                        }
-                    }
-                    else {
-                        index.addOtherSelector(selector, styleRule);
-                    }
+                for (Selector selector : styleRule.getSelectors()) {
+                    index.add(selector, styleRule);
                 }
             }
             else if (rule instanceof CSSImportRuleImpl) {
@@ -1610,7 +1635,7 @@ public class CSSStyleSheet extends StyleSheet {
                     final CSSRuleListImpl sheetRuleList = sheet.getWrappedSheet().getCssRules();
                     alreadyProcessing.add(sheet.getUri());
 
-                    if (mediaList.getLength() == 0 && index.getMediaList().getLength() == 0) {
+                    if (mediaList.getLength() == 0 && !index.hasMedia()) {
                         index(index, sheetRuleList, alreadyProcessing);
                     }
                     else {
@@ -1621,7 +1646,7 @@ public class CSSStyleSheet extends StyleSheet {
             else if (rule instanceof CSSMediaRuleImpl) {
                 final CSSMediaRuleImpl mediaRule = (CSSMediaRuleImpl) rule;
                 final MediaListImpl mediaList = mediaRule.getMediaList();
-                if (mediaList.getLength() == 0 && index.getMediaList().getLength() == 0) {
+                if (mediaList.getLength() == 0 && !index.hasMedia()) {
                     index(index, mediaRule.getCssRules(), alreadyProcessing);
                 }
                 else {
@@ -1631,30 +1656,23 @@ public class CSSStyleSheet extends StyleSheet {
         }
     }
 
-    private List<CSSStyleSheetImpl.SelectorEntry> selects(
-                            final CSSStyleSheetImpl.CSSStyleSheetRuleIndex index,
+    private List<CSSSelectorIndex.Entry> selects(
+                            final CSSSelectorIndex index,
                             final SimpleScriptable scriptable,
                             final BrowserVersion browserVersion, final DomElement element,
                             final String pseudoElement, final boolean fromQuerySelectorAll) {
 
-        final List<CSSStyleSheetImpl.SelectorEntry> matchingRules = new ArrayList<>();
-
-        if (CSSStyleSheet.isActive(scriptable, index.getMediaList())) {
-            final String elementName = element.getLowercaseName();
-            final String[] classes = StringUtils.split(element.getAttributeDirect("class"), null, -1);
-            final Iterator<CSSStyleSheetImpl.SelectorEntry> iter =
-                    index.getSelectorEntriesIteratorFor(elementName, classes);
+        final List<CSSSelectorIndex.Entry> matchingRules = new ArrayList<>();
 
-            CSSStyleSheetImpl.SelectorEntry entry = iter.next();
-            while (null != entry) {
+        if (!index.hasMedia() || CSSStyleSheet.isActive(scriptable, index.getMediaList())) {
+            for (CSSSelectorIndex.Entry entry : index.getCandidates(element)) {
                 if (CSSStyleSheet.selects(browserVersion, entry.getSelector(),
                                             element, pseudoElement, fromQuerySelectorAll)) {
                     matchingRules.add(entry);
                 }
-                entry = iter.next();
             }
 
-            for (CSSStyleSheetImpl.CSSStyleSheetRuleIndex child : index.getChildren()) {
+            for (CSSSelectorIndex child : index.getChildren()) {
                 matchingRules.addAll(selects(child, scriptable, browserVersion,
                                                     element, pseudoElement, fromQuerySelectorAll));
             }
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.host.css;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import com.gargoylesoftware.css.parser.condition.Condition;
+import com.gargoylesoftware.css.parser.selector.ChildSelector;
+import com.gargoylesoftware.css.parser.selector.DescendantSelector;
+import com.gargoylesoftware.css.parser.selector.DirectAdjacentSelector;
+import com.gargoylesoftware.css.parser.selector.ElementSelector;
+import com.gargoylesoftware.css.parser.selector.GeneralAdjacentSelector;
+import com.gargoylesoftware.css.parser.selector.Selector;
+
+/**
+ * Summarizes what the selectors of one or more stylesheets depend on; used to decide which
+ * cached computed styles have to be evicted when the DOM changes. Everything not understood
+ * is treated as depending on everything.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class SelectorDependencies {
+
+    private final Set<String> attributes_ = new HashSet<>();
+    private final Set<String> pseudoClasses_ = new HashSet<>();
+    private boolean anyAttribute_;
+    private boolean siblings_;
+    private boolean children_;
+
+    /**
+     * Adds the dependencies of the given selector.
+     * @param selector the selector
+     */
+    public void add(final Selector selector) {
+        switch (selector.getSelectorType()) {
+            case ELEMENT_NODE_SELECTOR:
+                final List<Condition> conditions = ((ElementSelector) selector).getConditions();
+                if (conditions != null) {
+                    for (Condition condition : conditions) {
+                        add(condition);
+                    }
+                }
+                break;
+
+            case CHILD_SELECTOR:
+                final ChildSelector cs = (ChildSelector) selector;
+                add(cs.getAncestorSelector());
+                add(cs.getSimpleSelector());
+                break;
+
+            case DESCENDANT_SELECTOR:
+                final DescendantSelector ds = (DescendantSelector) selector;
+                add(ds.getAncestorSelector());
+                add(ds.getSimpleSelector());
+                break;
+
+            case DIRECT_ADJACENT_SELECTOR:
+                final DirectAdjacentSelector das = (DirectAdjacentSelector) selector;
+                siblings_ = true;
+                add(das.getSelector());
+                add(das.getSimpleSelector());
+                break;
+
+            case GENERAL_ADJACENT_SELECTOR:
+                final GeneralAdjacentSelector gas = (GeneralAdjacentSelector) selector;
+                siblings_ = true;
+                add(gas.getSelector());
+                add(gas.getSimpleSelector());
+                break;
+
+            case PSEUDO_ELEMENT_SELECTOR:
+                break;
+
+            default:
+                addEverything();
+        }
+    }
+
+    private void add(final Condition condition) {
+        switch (condition.getConditionType()) {
+            case ID_CONDITION:
+                attributes_.add("id");
+                break;
+
+            case CLASS_CONDITION:
+                attributes_.add("class");
+                break;
+
+            case ATTRIBUTE_CONDITION:
+            case PREFIX_ATTRIBUTE_CONDITION:
+            case SUFFIX_ATTRIBUTE_CONDITION:
+            case SUBSTRING_ATTRIBUTE_CONDITION:
+            case BEGIN_HYPHEN_ATTRIBUTE_CONDITION:
+            case ONE_OF_ATTRIBUTE_CONDITION:
+                final String name = condition.getLocalName();
+                if (name == null) {
+                    anyAttribute_ = true;
+                }
+                else {
+                    attributes_.add(name.toLowerCase(Locale.ROOT));
+                }
+                break;
+
+            case LANG_CONDITION:
+                attributes_.add("lang");
+                break;
+
+            case PSEUDO_CLASS_CONDITION:
+                addPseudoClass(condition.getValue());
+                break;
+
+            default:
+                addEverything();
+        }
+    }
+
+    private void addPseudoClass(final String value) {
+        switch (value) {
+            case "enabled":
+            case "disabled":
+                attributes_.add("disabled");
+                break;
+
+            case "checked":
+                attributes_.add("checked");
+                attributes_.add("selected");
+                break;
+
+            case "required":
+            case "optional":
+                attributes_.add("required");
+                break;
+
+            case "target":
+                attributes_.add("id");
+                break;
+
+            case "first-child":
+            case "last-child":
+            case "only-child":
+            case "first-of-type":
+            case "last-of-type":
+            case "only-of-type":
+                siblings_ = true;
+                break;
+
+            case "empty":
+                children_ = true;
+                break;
+
+            default:
+                if (value.startsWith("nth-")) {
+                    siblings_ = true;
+                }
+                else if (value.startsWith("not(")) {
+                    addEverything();
+                }
+                else {
+                    // state like hover or focus
+                    pseudoClasses_.add(value);
+                }
+        }
+    }
+
+    private void addEverything() {
+        anyAttribute_ = true;
+        siblings_ = true;
+        children_ = true;
+    }
+
+    /**
+     * Adds all the dependencies of the given object.
+     * @param other the dependencies to add
+     */
+    public void addAll(final SelectorDependencies other) {
+        attributes_.addAll(other.attributes_);
+        pseudoClasses_.addAll(other.pseudoClasses_);
+        anyAttribute_ |= other.anyAttribute_;
+        siblings_ |= other.siblings_;
+        children_ |= other.children_;
+    }
+
+    /**
+     * Returns whether a selector might match differently if the given attribute changes.
+     * @param attributeName the name of the attribute
+     * @return {@code true} if there might be a dependency
+     */
+    public boolean dependsOnAttribute(final String attributeName) {
+        return anyAttribute_ || attributes_.contains(attributeName.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns whether a selector depends on the siblings of an element
+     * (sibling combinators or pseudo classes like <tt>first-child</tt>).
+     * @return {@code true} if there might be a dependency
+     */
+    public boolean dependsOnSiblings() {
+        return siblings_;
+    }
+
+    /**
+     * Returns whether a selector depends on the children of an element (e.g. <tt>empty</tt>).
+     * @return {@code true} if there might be a dependency
+     */
+    public boolean dependsOnChildren() {
+        return children_;
+    }
+
+    /**
+     * Returns whether a selector uses the given (state) pseudo class like <tt>hover</tt>.
+     * @param pseudoClass the name of the pseudo class
+     * @return {@code true} if there might be a dependency
+     */
+    public boolean dependsOnPseudoClass(final String pseudoClass) {
+        return anyAttribute_ || pseudoClasses_.contains(pseudoClass);
+    }
+}
@@ -25,8 +25,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.gargoylesoftware.htmlunit.BrowserVersion;
-import com.gargoylesoftware.htmlunit.html.DomChangeEvent;
-import com.gargoylesoftware.htmlunit.html.DomChangeListener;
 import com.gargoylesoftware.htmlunit.html.DomElement;
 import com.gargoylesoftware.htmlunit.html.DomNode;
 import com.gargoylesoftware.htmlunit.html.HtmlAttributeChangeEvent;
@@ -77,6 +75,9 @@ public class AbstractList extends SimpleScriptable implements Function {
      */
     private List<DomNode> cachedElements_;
 
+    /** The {@link DomNode#getDomChangeVersion()} of our node the cached elements are valid for. */
+    private int cachedElementsVersion_;
+
     private boolean listenerRegistered_;
 
     /**
@@ -212,18 +213,31 @@ public class AbstractList extends SimpleScriptable implements Function {
 
         if (oldDomNode != domNode) {
             listenerRegistered_ = false;
+            if (domNode != null) {
+                cachedElementsVersion_ = domNode.getDomChangeVersion();
+            }
         }
     }
 
     /**
      * Gets the HTML elements from cache or retrieve them at first call.
+     * The cache is invalidated if a node was added or removed below our node
+     * (see {@link DomNode#getDomChangeVersion()}).
      * @return the list of {@link HtmlElement} contained in this collection
      */
     public List<DomNode> getElements() {
         // a bit strange but we like to avoid sync
         List<DomNode> cachedElements = cachedElements_;
 
+        final DomNode domNode = getDomNodeOrNull();
+        if (cachedElements != null && domNode != null && domNode.getDomChangeVersion() != cachedElementsVersion_) {
+            cachedElements = null;
+        }
+
         if (cachedElements == null) {
+            if (domNode != null) {
+                cachedElementsVersion_ = domNode.getDomChangeVersion();
+            }
             if (getParentScope() == null) {
                 cachedElements = new ArrayList<>();
             }
@@ -240,18 +254,15 @@ public class AbstractList extends SimpleScriptable implements Function {
     }
 
     private void registerListener() {
-        if (!listenerRegistered_) {
+        if (!listenerRegistered_ && attributeChangeSensitive_) {
             final DomNode domNode = getDomNodeOrNull();
             if (domNode != null) {
-                final DomHtmlAttributeChangeListenerImpl listener = new DomHtmlAttributeChangeListenerImpl(this);
-                domNode.addDomChangeListener(listener);
-                if (attributeChangeSensitive_) {
-                    if (domNode instanceof HtmlElement) {
-                        ((HtmlElement) domNode).addHtmlAttributeChangeListener(listener);
-                    }
-                    else if (domNode instanceof HtmlPage) {
-                        ((HtmlPage) domNode).addHtmlAttributeChangeListener(listener);
-                    }
+                final HtmlAttributeChangeListenerImpl listener = new HtmlAttributeChangeListenerImpl(this);
+                if (domNode instanceof HtmlElement) {
+                    ((HtmlElement) domNode).addHtmlAttributeChangeListener(listener);
+                }
+                else if (domNode instanceof HtmlPage) {
+                    ((HtmlPage) domNode).addHtmlAttributeChangeListener(listener);
                 }
                 listenerRegistered_ = true;
             }
@@ -558,33 +569,16 @@ public class AbstractList extends SimpleScriptable implements Function {
         }
     }
 
-    private static final class DomHtmlAttributeChangeListenerImpl
-                                    implements DomChangeListener, HtmlAttributeChangeListener {
+    private static final class HtmlAttributeChangeListenerImpl implements HtmlAttributeChangeListener {
 
         private transient WeakReference<AbstractList> nodeList_;
 
-        private DomHtmlAttributeChangeListenerImpl(final AbstractList nodeList) {
+        private HtmlAttributeChangeListenerImpl(final AbstractList nodeList) {
             super();
 
             nodeList_ = new WeakReference<>(nodeList);
         }
 
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void nodeAdded(final DomChangeEvent event) {
-            clearCache();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void nodeDeleted(final DomChangeEvent event) {
-            clearCache();
-        }
-
         /**
          * {@inheritDoc}
          */
@@ -782,6 +782,18 @@ public class Document extends Node {
                 protected boolean isMatching(final DomNode node) {
                     return tagName.equalsIgnoreCase(node.getNodeName());
                 }
+
+                @Override
+                protected Iterable<DomNode> getCandidates() {
+                    final DomNode page = getDomNodeOrNull();
+                    if (page instanceof HtmlPage) {
+                        final List<DomElement> candidates = ((HtmlPage) page).getElementsByLocalName(tagName);
+                        if (candidates != null) {
+                            return Collections.<DomNode>unmodifiableList(candidates);
+                        }
+                    }
+                    return super.getCandidates();
+                }
             };
         }
 
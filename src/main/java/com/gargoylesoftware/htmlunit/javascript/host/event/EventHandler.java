@@ -15,6 +15,8 @@
 package com.gargoylesoftware.htmlunit.javascript.host.event;
 
 import com.gargoylesoftware.htmlunit.html.DomNode;
+import com.gargoylesoftware.htmlunit.javascript.AbstractJavaScriptEngine;
+import com.gargoylesoftware.htmlunit.javascript.JavaScriptEngine;
 import com.gargoylesoftware.htmlunit.javascript.SimpleScriptable;
 
 import net.sourceforge.htmlunit.corejs.javascript.BaseFunction;
@@ -62,8 +64,14 @@ public class EventHandler extends BaseFunction {
         final SimpleScriptable jsObj = node_.getScriptableObject();
         // compile "just in time"
         if (realFunction_ == null) {
-            realFunction_ = cx.compileFunction(jsObj, jsSnippet_, eventName_ + " event for " + node_
-                + " in " + node_.getPage().getUrl(), 0, null);
+            final String sourceName = eventName_ + " event for " + node_ + " in " + node_.getPage().getUrl();
+            final AbstractJavaScriptEngine<?> engine = node_.getPage().getWebClient().getJavaScriptEngine();
+            if (engine instanceof JavaScriptEngine) {
+                realFunction_ = ((JavaScriptEngine) engine).compileFunction(cx, jsObj, jsSnippet_, sourceName);
+            }
+            else {
+                realFunction_ = cx.compileFunction(jsObj, jsSnippet_, sourceName, 0, null);
+            }
             realFunction_.setParentScope(jsObj);
         }
 
@@ -229,9 +229,21 @@ public class EventListenersContainer implements Serializable {
             }
             return false;
         }
+        addListenedEventType(type);
         return true;
     }
 
+    /**
+     * Tells the window of our node that there is a listener for this event type.
+     * @param eventType the event type
+     */
+    private void addListenedEventType(final String eventType) {
+        final Scriptable topLevelScope = ScriptableObject.getTopLevelScope(jsNode_);
+        if (topLevelScope instanceof Window) {
+            ((Window) topLevelScope).addListenedEventType(eventType);
+        }
+    }
+
     private TypeContainer getTypeContainer(final String type) {
         final String typeLC = type.toLowerCase(Locale.ROOT);
         return typeContainers_.getOrDefault(typeLC, TypeContainer.EMPTY);
@@ -286,6 +298,10 @@ public class EventListenersContainer implements Serializable {
             }
             return container.setPropertyHandler(handler);
         });
+
+        if (handler != null) {
+            addListenedEventType(eventType);
+        }
     }
 
     private void executeEventListeners(final int eventPhase, final Event event, final Object[] args) {
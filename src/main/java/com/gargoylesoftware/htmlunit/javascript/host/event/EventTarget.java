@@ -121,6 +121,18 @@ public class EventTarget extends SimpleScriptable {
             final DomNode ourNode = getDomNodeOrNull();
             final DomNode ourParentNode = (ourNode != null) ? ourNode.getParentNode() : null;
 
+            // nobody listens, there is no need to create the propagation path
+            // (and the JavaScript objects of all the parents)
+            if (!window.isListenedEventType(event.getType())
+                    && !hasEventListenersOnPath(event.getType(), ourParentNode, window)) {
+                event.setEventPhase(Event.AT_TARGET);
+                if (event.isBubbles()) {
+                    event.setEventPhase(Event.BUBBLING_PHASE);
+                }
+                processLabelAfterBubbling(event, ourParentNode);
+                return new ScriptResult(null);
+            }
+
             // Determine the propagation path which is fixed here and not affected by
             // DOM tree modification from intermediate listeners (tested in Chrome)
             final List<EventTarget> propagationPath = new ArrayList<>();
@@ -145,6 +157,8 @@ public class EventTarget extends SimpleScriptable {
                 }
             }
 
+            final Object[] args = new Object[] {event};
+
             // capturing phase
             event.setEventPhase(Event.CAPTURING_PHASE);
 
@@ -152,7 +166,7 @@ public class EventTarget extends SimpleScriptable {
                 final EventTarget jsNode = propagationPath.get(i);
                 final EventListenersContainer elc = jsNode.eventListenersContainer_;
                 if (elc != null) {
-                    elc.executeCapturingListeners(event, new Object[] {event});
+                    elc.executeCapturingListeners(event, args);
                     if (event.isPropagationStopped()) {
                         return new ScriptResult(null);
                     }
@@ -168,7 +182,7 @@ public class EventTarget extends SimpleScriptable {
                 final EventTarget jsNode = propagationPath.get(0);
                 final EventListenersContainer elc = jsNode.eventListenersContainer_;
                 if (elc != null) {
-                    elc.executeAtTargetListeners(event, new Object[] {event});
+                    elc.executeAtTargetListeners(event, args);
                     if (event.isPropagationStopped()) {
                         return new ScriptResult(null);
                     }
@@ -185,7 +199,7 @@ public class EventTarget extends SimpleScriptable {
                     final EventTarget jsNode = propagationPath.get(i);
                     final EventListenersContainer elc = jsNode.eventListenersContainer_;
                     if (elc != null) {
-                        elc.executeBubblingListeners(event, new Object[] {event});
+                        elc.executeBubblingListeners(event, args);
                         if (event.isPropagationStopped()) {
                             return new ScriptResult(null);
                         }
@@ -193,28 +207,7 @@ public class EventTarget extends SimpleScriptable {
                 }
             }
 
-            HtmlLabel label = null;
-            if (event.processLabelAfterBubbling()) {
-                for (DomNode parent = ourParentNode; parent != null; parent = parent.getParentNode()) {
-                    if (parent instanceof HtmlLabel) {
-                        label = (HtmlLabel) parent;
-                        break;
-                    }
-                }
-            }
-
-            if (label != null) {
-                final HtmlElement element = label.getReferencedElement();
-                if (element != null && element != getDomNodeOrNull()) {
-                    try {
-                        element.click(event.isShiftKey(), event.isCtrlKey(), event.isAltKey(), false, true, true);
-                    }
-                    catch (final IOException e) {
-                        // ignore for now
-                    }
-                }
-            }
-
+            processLabelAfterBubbling(event, ourParentNode);
         }
         finally {
             event.endFire();
@@ -224,6 +217,84 @@ public class EventTarget extends SimpleScriptable {
         return new ScriptResult(null);
     }
 
+    /**
+     * Returns whether this object, one of the given parents or the window has a listener
+     * or a handler for the given event type. The JavaScript objects of the parents are not created,
+     * for parents without one the event handler attributes are checked instead.
+     * @param eventType the event type
+     * @param parentNode the first parent, may be {@code null}
+     * @param window the window
+     * @return {@code true} if there might be a listener on the propagation path
+     */
+    private boolean hasEventListenersOnPath(final String eventType, final DomNode parentNode, final Window window) {
+        if (hasEventListeners(this, eventType) || hasEventListeners(window, eventType)) {
+            return true;
+        }
+
+        for (DomNode parent = parentNode; parent != null; parent = parent.getParentNode()) {
+            final Object scriptObject = parent.getScriptableObjectOrNull();
+            if (scriptObject == null) {
+                if (parent == parent.getPage()) {
+                    // strange case, let the usual processing report the problem
+                    return true;
+                }
+                if (parent instanceof DomElement && hasEventHandlerAttribute((DomElement) parent, eventType)) {
+                    return true;
+                }
+            }
+            else if (!(scriptObject instanceof EventTarget)
+                    || hasEventListeners((EventTarget) scriptObject, eventType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasEventListeners(final EventTarget jsNode, final String eventType) {
+        final EventListenersContainer elc = jsNode.eventListenersContainer_;
+        return elc != null && elc.hasEventListeners(eventType);
+    }
+
+    /**
+     * The event handlers defined by attributes are created together with the JavaScript object
+     * of the element (see {@link com.gargoylesoftware.htmlunit.javascript.host.Element#setDomNode(DomNode)}).
+     */
+    private static boolean hasEventHandlerAttribute(final DomElement element, final String eventType) {
+        final int length = eventType.length() + 2;
+        for (final String name : element.getAttributesMap().keySet()) {
+            if (name.length() == length
+                    && name.regionMatches(true, 0, "on", 0, 2)
+                    && name.regionMatches(true, 2, eventType, 0, eventType.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void processLabelAfterBubbling(final Event event, final DomNode ourParentNode) {
+        HtmlLabel label = null;
+        if (event.processLabelAfterBubbling()) {
+            for (DomNode parent = ourParentNode; parent != null; parent = parent.getParentNode()) {
+                if (parent instanceof HtmlLabel) {
+                    label = (HtmlLabel) parent;
+                    break;
+                }
+            }
+        }
+
+        if (label != null) {
+            final HtmlElement element = label.getReferencedElement();
+            if (element != null && element != getDomNodeOrNull()) {
+                try {
+                    element.click(event.isShiftKey(), event.isCtrlKey(), event.isAltKey(), false, true, true);
+                }
+                catch (final IOException e) {
+                    // ignore for now
+                }
+            }
+        }
+    }
+
     /**
      * Returns {@code true} if there are any event handlers for the specified event.
      * @param eventName the event name (e.g. "onclick")
@@ -18,9 +18,7 @@ import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_REGEXP_EMP
 import static com.gargoylesoftware.htmlunit.BrowserVersionFeatures.JS_REGEXP_GROUP0_RETURNS_WHOLE_MATCH;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -52,8 +50,6 @@ import net.sourceforge.htmlunit.corejs.javascript.regexp.SubString;
 public class HtmlUnitRegExpProxy extends RegExpImpl {
 
     private static final Log LOG = LogFactory.getLog(HtmlUnitRegExpProxy.class);
-    /** Pattern cache */
-    private static final Map<String, Pattern> PATTENS = new HashMap<>();
 
     private final RegExpProxy wrapped_;
     private final BrowserVersion browserVersion_;
@@ -423,21 +419,13 @@ public class HtmlUnitRegExpProxy extends RegExpImpl {
 
             global_ = jsFlags.indexOf('g') != -1;
 
-            pattern_ = PATTENS.get(str);
-            if (pattern_ == null) {
-                pattern_ = Pattern.compile(jsRegExpToJavaRegExp(jsSource), getJavaFlags(jsFlags));
-                PATTENS.put(str, pattern_);
-            }
+            pattern_ = RegExpCache.getInstance().getPattern(jsSource, getJavaFlags(jsFlags));
         }
 
         RegExpData(final String string) {
             global_ = false;
 
-            pattern_ = PATTENS.get(string);
-            if (pattern_ == null) {
-                pattern_ = Pattern.compile(jsRegExpToJavaRegExp(string), 0);
-                PATTENS.put(string, pattern_);
-            }
+            pattern_ = RegExpCache.getInstance().getPattern(string, 0);
         }
 
         /**
@@ -470,8 +458,7 @@ public class HtmlUnitRegExpProxy extends RegExpImpl {
      * @return the transformed expression
      */
     static String jsRegExpToJavaRegExp(final String re) {
-        final RegExpJsToJavaConverter regExpJsToJavaFSM = new RegExpJsToJavaConverter();
-        return regExpJsToJavaFSM.convert(re);
+        return RegExpCache.getInstance().convert(re);
     }
 
     /**
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.regexp;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Caches the Java {@link Pattern}s used for JavaScript regular expressions, shared by all web clients.</p>
+ *
+ * <p>There are two bounded LRU maps; one for the compiled patterns (keyed by the JavaScript source
+ * and the flags) and one for the results of the {@link RegExpJsToJavaConverter} (keyed by the
+ * JavaScript source only), so the same expression used with different flags is converted only once.
+ * Both are limited by {@link #setMaxSize(int)}.</p>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class RegExpCache {
+
+    /** The default maximum number of entries of each map. */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static final RegExpCache INSTANCE = new RegExpCache();
+
+    private final Entries<Pattern> patterns_ = new Entries<>();
+    private final Entries<String> conversions_ = new Entries<>();
+
+    private volatile int maxSize_ = DEFAULT_MAX_SIZE;
+
+    /**
+     * An access ordered map with statistics; all access has to be synchronized on the instance.
+     * @param <V> the type of the values
+     */
+    private static final class Entries<V> {
+        private final Map<String, V> map_ = new LinkedHashMap<>(16, 0.75f, true);
+        private long hitCount_;
+        private long missCount_;
+        private long evictionCount_;
+
+        synchronized V get(final String key) {
+            final V value = map_.get(key);
+            if (value == null) {
+                missCount_++;
+            }
+            else {
+                hitCount_++;
+            }
+            return value;
+        }
+
+        synchronized void put(final String key, final V value, final int maxSize) {
+            map_.put(key, value);
+            deleteOverflow(maxSize);
+        }
+
+        synchronized void deleteOverflow(final int maxSize) {
+            final Iterator<String> it = map_.keySet().iterator();
+            while (map_.size() > maxSize && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictionCount_++;
+            }
+        }
+
+        synchronized void clear() {
+            map_.clear();
+            hitCount_ = 0;
+            missCount_ = 0;
+            evictionCount_ = 0;
+        }
+    }
+
+    /**
+     * Private to enforce the singleton.
+     */
+    private RegExpCache() {
+        // Empty.
+    }
+
+    /**
+     * Returns the cache shared by all web clients.
+     * @return the cache
+     */
+    public static RegExpCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the pattern for the given JavaScript regular expression, converting and compiling
+     * it if not already cached.
+     *
+     * @param jsSource the source of the JavaScript regular expression
+     * @param javaFlags the Java {@link Pattern} flags
+     * @return the pattern
+     */
+    Pattern getPattern(final String jsSource, final int javaFlags) {
+        final String key = javaFlags + "/" + jsSource;
+        Pattern pattern = patterns_.get(key);
+        if (pattern == null) {
+            pattern = Pattern.compile(convert(jsSource), javaFlags);
+            patterns_.put(key, pattern, maxSize_);
+        }
+        return pattern;
+    }
+
+    /**
+     * Converts the given JavaScript regular expression to a Java regular expression.
+     * @param jsSource the source of the JavaScript regular expression
+     * @return the Java regular expression
+     */
+    String convert(final String jsSource) {
+        String javaSource = conversions_.get(jsSource);
+        if (javaSource == null) {
+            javaSource = new RegExpJsToJavaConverter().convert(jsSource);
+            conversions_.put(jsSource, javaSource, maxSize_);
+        }
+        return javaSource;
+    }
+
+    /**
+     * Returns the maximum number of cached patterns; the same limit is used for the cached conversions.
+     * The default is {@link #DEFAULT_MAX_SIZE}.
+     * @return the maximum number of entries
+     */
+    public int getMaxSize() {
+        return maxSize_;
+    }
+
+    /**
+     * Sets the maximum number of cached patterns; the same limit is used for the cached conversions.
+     * @param maxSize the maximum number of entries (must be &gt;= 0)
+     */
+    public void setMaxSize(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Illegal value for maxSize: " + maxSize);
+        }
+        maxSize_ = maxSize;
+        patterns_.deleteOverflow(maxSize);
+        conversions_.deleteOverflow(maxSize);
+    }
+
+    /**
+     * Returns the number of cached patterns.
+     * @return the number of cached patterns
+     */
+    public int getSize() {
+        synchronized (patterns_) {
+            return patterns_.map_.size();
+        }
+    }
+
+    /**
+     * Returns the number of pattern lookups that were answered from the cache.
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+        synchronized (patterns_) {
+            return patterns_.hitCount_;
+        }
+    }
+
+    /**
+     * Returns the number of pattern lookups that were not answered from the cache.
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+        synchronized (patterns_) {
+            return patterns_.missCount_;
+        }
+    }
+
+    /**
+     * Returns the number of patterns removed because the cache exceeded its size.
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        synchronized (patterns_) {
+            return patterns_.evictionCount_;
+        }
+    }
+
+    /**
+     * Returns the number of conversions that were answered from the cache.
+     * @return the number of conversion cache hits
+     */
+    public long getConversionHitCount() {
+        synchronized (conversions_) {
+            return conversions_.hitCount_;
+        }
+    }
+
+    /**
+     * Returns the number of conversions that were done because the result was not cached.
+     * @return the number of conversion cache misses
+     */
+    public long getConversionMissCount() {
+        synchronized (conversions_) {
+            return conversions_.missCount_;
+        }
+    }
+
+    /**
+     * Clears the cache and resets the statistics.
+     */
+    public void clear() {
+        patterns_.clear();
+        conversions_.clear();
+    }
+}
@@ -36,6 +36,7 @@ import org.apache.commons.lang3.time.DateUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import com.gargoylesoftware.css.dom.CSSStyleSheetImpl;
 import com.gargoylesoftware.htmlunit.BrowserRunner.Alerts;
 import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import com.gargoylesoftware.htmlunit.util.MimeType;
@@ -617,6 +618,89 @@ public class CacheTest extends SimpleWebTestCase {
 
         verify(response1);
     }
+
+    /**
+     * containsEntry() must not change the statistics.
+     */
+    @Test
+    public void containsEntry() {
+        final WebRequest request1 = new WebRequest(URL_FIRST, HttpMethod.GET);
+        final WebResponse response1 = createMock(WebResponse.class);
+        expect(response1.getWebRequest()).andReturn(request1);
+        expectLastCall().atLeastOnce();
+        expect(response1.getResponseHeaderValue(HttpHeader.CACHE_CONTROL)).andReturn(null);
+        expect(response1.getResponseHeaderValue(HttpHeader.LAST_MODIFIED)).andReturn(null);
+        expect(response1.getResponseHeaderValue(HttpHeader.EXPIRES)).andReturn(
+                formatDate(DateUtils.addHours(new Date(), 1)));
+
+        replay(response1);
+
+        final Cache cache = new Cache();
+        cache.cacheIfPossible(request1, response1, null);
+
+        assertTrue(cache.containsEntry(request1));
+        assertFalse(cache.containsEntry(new WebRequest(URL_SECOND, HttpMethod.GET)));
+        assertFalse(cache.containsEntry(new WebRequest(URL_FIRST, HttpMethod.POST)));
+
+        assertEquals(0L, cache.getHitCount());
+        assertEquals(0L, cache.getMissCount());
+    }
+
+    /**
+     * Test that the least recently used entries are evicted first.
+     */
+    @Test
+    public void evictLeastRecentlyUsed() {
+        final Cache cache = new Cache();
+        cache.setMaxSize(2);
+
+        final CSSStyleSheetImpl sheet1 = new CSSStyleSheetImpl();
+        final CSSStyleSheetImpl sheet2 = new CSSStyleSheetImpl();
+        final CSSStyleSheetImpl sheet3 = new CSSStyleSheetImpl();
+        cache.cache("a {}", sheet1);
+        cache.cache("b {}", sheet2);
+
+        // touch the first one, the second one is now the eldest
+        assertSame(sheet1, cache.getCachedStyleSheet("a {}"));
+        cache.cache("c {}", sheet3);
+
+        assertEquals(2, cache.getSize());
+        assertSame(sheet1, cache.getCachedStyleSheet("a {}"));
+        assertNull(cache.getCachedStyleSheet("b {}"));
+        assertSame(sheet3, cache.getCachedStyleSheet("c {}"));
+
+        assertEquals(3L, cache.getHitCount());
+        assertEquals(1L, cache.getMissCount());
+        assertEquals(1L, cache.getEvictionCount());
+    }
+
+    /**
+     * Test the byte size limit.
+     */
+    @Test
+    public void maxByteSize() {
+        final Cache cache = new Cache();
+        cache.cache("a { color: red }", new CSSStyleSheetImpl());
+        assertEquals(0L, cache.getByteSize());
+
+        // 16 chars -> 64 bytes estimated
+        cache.setMaxByteSize(100);
+        assertEquals(64L, cache.getByteSize());
+
+        cache.cache("b { color: red }", new CSSStyleSheetImpl());
+        assertEquals(1, cache.getSize());
+        assertEquals(64L, cache.getByteSize());
+        assertNull(cache.getCachedStyleSheet("a { color: red }"));
+        assertEquals(1L, cache.getEvictionCount());
+
+        cache.setMaxByteSize(0);
+        assertEquals(0L, cache.getByteSize());
+        cache.cache("a { color: red }", new CSSStyleSheetImpl());
+        assertEquals(2, cache.getSize());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+    }
 }
 
 class DummyWebResponse extends WebResponse {
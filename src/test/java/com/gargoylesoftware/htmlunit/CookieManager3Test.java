@@ -18,15 +18,21 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
 import org.apache.http.Header;
+import org.apache.http.cookie.ClientCookie;
 import org.apache.http.cookie.CookieOrigin;
+import org.apache.http.cookie.CookieSpec;
+import org.apache.http.impl.cookie.BasicClientCookie;
 import org.apache.http.impl.cookie.DefaultCookieSpec;
 import org.apache.http.message.BasicHeader;
 import org.junit.Test;
 
+import com.gargoylesoftware.htmlunit.httpclient.HtmlUnitBrowserCompatCookieSpec;
 import com.gargoylesoftware.htmlunit.util.Cookie;
 
 /**
@@ -97,6 +103,46 @@ public class CookieManager3Test {
         assertEquals(1, mgr.getCookies().size());
     }
 
+    /**
+     * Verifies the lookup of the cookies matching an origin.
+     */
+    @Test
+    public void matchingCookies() {
+        final CookieManager mgr = new CookieManager();
+        final CookieSpec spec = new HtmlUnitBrowserCompatCookieSpec(BrowserVersion.getDefault());
+
+        final BasicClientCookie domainCookie = new BasicClientCookie("b", "2");
+        domainCookie.setDomain(".example.com");
+        domainCookie.setPath("/");
+        domainCookie.setAttribute(ClientCookie.DOMAIN_ATTR, ".example.com");
+        final Cookie b = new Cookie(domainCookie);
+
+        final Cookie a = new Cookie("www.example.com", "a", "1", "/", null, false);
+        final Cookie c = new Cookie("other.com", "c", "3", "/", null, false);
+        final Cookie d = new Cookie("www.example.com", "d", "4", "/foo", null, false);
+        mgr.addCookie(b);
+        mgr.addCookie(a);
+        mgr.addCookie(c);
+        mgr.addCookie(d);
+
+        final CookieOrigin www = new CookieOrigin("www.example.com", 80, "/foo/bar", false);
+        assertEquals(Arrays.asList(b, a, d), new ArrayList<>(mgr.getCookies(www, spec)));
+        assertEquals(Arrays.asList(b, a), new ArrayList<>(mgr.getCookies(
+                new CookieOrigin("www.example.com", 80, "/", false), spec)));
+        assertEquals(Arrays.asList(b), new ArrayList<>(mgr.getCookies(
+                new CookieOrigin("example.com", 80, "/", false), spec)));
+        assertEquals(Arrays.asList(c), new ArrayList<>(mgr.getCookies(
+                new CookieOrigin("other.com", 80, "/", false), spec)));
+        assertTrue(mgr.getCookies(new CookieOrigin("example.org", 80, "/", false), spec).isEmpty());
+
+        // modifications are visible
+        mgr.removeCookie(b);
+        assertEquals(Arrays.asList(a, d), new ArrayList<>(mgr.getCookies(www, spec)));
+
+        mgr.setCookiesEnabled(false);
+        assertTrue(mgr.getCookies(www, spec).isEmpty());
+    }
+
     /**
      * Test that " are not discarded.
      * Once this test passes, our hack in HttpWebConnection.HtmlUnitBrowserCompatCookieSpec can safely be removed.
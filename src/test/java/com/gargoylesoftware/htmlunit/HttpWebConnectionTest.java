@@ -27,6 +27,7 @@ import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.net.URL;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -38,6 +39,7 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpEntity;
@@ -596,6 +598,79 @@ public class HttpWebConnectionTest extends WebServerTestCase {
         assertEquals(webClient.getBrowserVersion().getUserAgent(), userAgent);
     }
 
+    /**
+     * The HttpClient is built once and used for all requests.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void reuseHttpClient() throws Exception {
+        startWebServer("./");
+
+        final WebClient webClient = getWebClient();
+        // every request has to reach the connection
+        webClient.getCache().setMaxSize(0);
+        final HttpWebConnection connection = (HttpWebConnection) webClient.getWebConnection();
+        webClient.getPage(URL_FIRST + "LICENSE.txt");
+        final Object httpClient = get(connection, "httpClient_");
+        assertNotNull(httpClient);
+
+        webClient.getPage(URL_FIRST + "pom.xml");
+        assertSame(httpClient, get(connection, "httpClient_"));
+
+        // changed options require a new client
+        webClient.getOptions().setTimeout(webClient.getOptions().getTimeout() + 1);
+        webClient.getPage(URL_FIRST + "LICENSE.txt");
+        assertNotSame(httpClient, get(connection, "httpClient_"));
+    }
+
+    /**
+     * Content is kept in memory up to the limit, bigger content is stored in the temp file directory.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void downloadContent() throws Exception {
+        final byte[] bytes = new byte[100_000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i % 251);
+        }
+        final WebClientOptions options = new WebClientOptions();
+
+        // known length
+        DownloadedContent content = HttpWebConnection.downloadContent(
+                new ByteArrayInputStream(bytes), bytes.length, options);
+        assertTrue(content instanceof DownloadedContent.InMemory);
+        assertEquals(bytes, IOUtils.toByteArray(content.getInputStream()));
+
+        // unknown length
+        content = HttpWebConnection.downloadContent(new ByteArrayInputStream(bytes), -1, options);
+        assertEquals((long) bytes.length, content.length());
+        assertEquals(bytes, IOUtils.toByteArray(content.getInputStream()));
+
+        // wrong length
+        content = HttpWebConnection.downloadContent(new ByteArrayInputStream(bytes), 1000, options);
+        assertEquals((long) bytes.length, content.length());
+        assertEquals(bytes, IOUtils.toByteArray(content.getInputStream()));
+
+        final File directory = Files.createTempDirectory("htmlunit-test").toFile();
+        try {
+            options.setMaxInMemory(1000);
+            options.setTempFileDirectory(directory);
+            content = HttpWebConnection.downloadContent(new ByteArrayInputStream(bytes), bytes.length, options);
+            assertTrue(content instanceof DownloadedContent.OnFile);
+            assertEquals(1, directory.list().length);
+            assertEquals(bytes, IOUtils.toByteArray(content.getInputStream()));
+            content.cleanUp();
+            assertEquals(0, directory.list().length);
+
+            options.setMemoryMapTempFiles(true);
+            content = HttpWebConnection.downloadContent(new ByteArrayInputStream(bytes), -1, options);
+            assertEquals(bytes, IOUtils.toByteArray(content.getInputStream()));
+        }
+        finally {
+            FileUtils.deleteQuietly(directory);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private static <T> T get(final Object o, final String fieldName) throws Exception {
         final Field field = o.getClass().getDeclaredField(fieldName);
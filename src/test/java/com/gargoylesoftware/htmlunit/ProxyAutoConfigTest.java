@@ -27,6 +27,7 @@ import net.sourceforge.htmlunit.corejs.javascript.Undefined;
  * Tests for the {@link ProxyAutoConfig}.
  *
  * @author Ahmed Ashour
+ * @author <a href="mailto:agent@local">agent</a>
  */
 public class ProxyAutoConfigTest extends SimpleWebTestCase {
 
@@ -136,4 +137,38 @@ public class ProxyAutoConfigTest extends SimpleWebTestCase {
         final boolean isInNet = ProxyAutoConfig.isInNet("172.22.0.7", "172.16.0.0", "255.240.0.0");
         assertTrue(isInNet);
     }
+
+    /**
+     * The content is evaluated only once and the result for an URL is reused.
+     */
+    @Test
+    public void evaluatedOnce() {
+        final String content = "var calls = 0;\n"
+            + "function FindProxyForURL(url, host) {\n"
+            + "  calls++;\n"
+            + "  return 'PROXY ' + host + ':' + calls;\n"
+            + "}\n";
+        final ProxyAutoConfig config = new ProxyAutoConfig(content);
+        assertEquals("PROXY localhost:1", config.findProxyForURL(URL_FIRST));
+        assertEquals("PROXY localhost:1", config.findProxyForURL(URL_FIRST));
+        assertEquals("PROXY localhost:2", config.findProxyForURL(URL_SECOND));
+        assertEquals("PROXY localhost:1", config.findProxyForURL(URL_FIRST));
+    }
+
+    /**
+     * The result of a script depending on the time is not reused.
+     */
+    @Test
+    public void timeDependentNotReused() {
+        final String content = "var calls = 0;\n"
+            + "function FindProxyForURL(url, host) {\n"
+            + "  calls++;\n"
+            + "  if (timeRange('0', '23') || true) {\n"
+            + "    return 'PROXY ' + host + ':' + calls;\n"
+            + "  }\n"
+            + "}\n";
+        final ProxyAutoConfig config = new ProxyAutoConfig(content);
+        assertEquals("PROXY localhost:1", config.findProxyForURL(URL_FIRST));
+        assertEquals("PROXY localhost:2", config.findProxyForURL(URL_FIRST));
+    }
 }
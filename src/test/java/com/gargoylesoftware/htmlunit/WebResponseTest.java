@@ -172,6 +172,28 @@ public class WebResponseTest extends WebServerTestCase {
         assertEquals("<html/>", webResponse.getContentAsString(webResponse.getContentCharset()));
     }
 
+    /**
+     * The charset and the decoded content are remembered; a bom still wins over the charset.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void contentAsStringRemembered() throws Exception {
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair(HttpHeader.CONTENT_TYPE, "text/plain; charset=UTF-8"));
+        final byte[] body = {(byte) 0xFE, (byte) 0xFF, 0, 'a', 0, 'b'};
+        final WebResponseData data = new WebResponseData(body, 200, "OK", headers);
+        final WebResponse webResponse = new WebResponse(data, URL_FIRST, HttpMethod.GET, 0);
+
+        assertSame(webResponse.getContentCharset(), webResponse.getContentCharset());
+        assertEquals(UTF_8, webResponse.getContentCharset());
+
+        final String content = webResponse.getContentAsString();
+        assertEquals("ab", content);
+        assertSame(content, webResponse.getContentAsString());
+        assertEquals("ab", webResponse.getContentAsString(ISO_8859_1));
+        assertEquals("ab", webResponse.getContentAsString());
+    }
+
     /**
      * Servlet for {@link #binaryResponseHeaders()}.
      */
@@ -21,6 +21,7 @@ import java.util.List;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.w3c.dom.Node;
 import org.xml.sax.helpers.AttributesImpl;
 
 import com.gargoylesoftware.htmlunit.BrowserRunner;
@@ -558,6 +559,44 @@ public class DomNodeTest extends SimpleWebTestCase {
         assertEquals(getExpectedAlerts(), listenerImpl.getCollectedValues());
     }
 
+    /**
+     * A listener added twice is notified once; a listener removing itself during
+     * the notification does not disturb the notification of the other listeners.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void domChangeListenerAddTwiceAndRemove() throws Exception {
+        final String htmlContent = "<html><head></head><body><p id='p1'></p></body></html>";
+        final HtmlPage page = loadPage(htmlContent);
+        final HtmlElement p1 = page.getHtmlElementById("p1");
+
+        final DomChangeListenerTestImpl listener1 = new DomChangeListenerTestImpl();
+        final DomChangeListenerTestImpl listener2 = new DomChangeListenerTestImpl() {
+            @Override
+            public void nodeAdded(final DomChangeEvent event) {
+                super.nodeAdded(event);
+                p1.removeDomChangeListener(this);
+            }
+        };
+        final DomChangeListenerTestImpl listener3 = new DomChangeListenerTestImpl();
+        p1.addDomChangeListener(listener1);
+        p1.addDomChangeListener(listener2);
+        p1.addDomChangeListener(listener1);
+        p1.addDomChangeListener(listener3);
+
+        p1.appendChild(page.createElement("div"));
+        p1.appendChild(page.createElement("span"));
+        assertEquals(new String[] {"nodeAdded: p,div", "nodeAdded: p,span"}, listener1.getCollectedValues());
+        assertEquals(new String[] {"nodeAdded: p,div"}, listener2.getCollectedValues());
+        assertEquals(new String[] {"nodeAdded: p,div", "nodeAdded: p,span"}, listener3.getCollectedValues());
+
+        p1.removeDomChangeListener(listener1);
+        p1.removeDomChangeListener(listener3);
+        p1.appendChild(page.createElement("b"));
+        assertEquals(2, listener1.getCollectedValues().size());
+        assertEquals(2, listener3.getCollectedValues().size());
+    }
+
     /**
      * @throws Exception if the test fails
      */
@@ -821,4 +860,80 @@ public class DomNodeTest extends SimpleWebTestCase {
         assertTrue(elem1.isDisplayed());
         assertTrue(elem2.isDisplayed());
     }
+
+    /**
+     * The document position is correct after many insertions at the same place.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void compareDocumentPositionAfterInsertions() throws Exception {
+        final String html = "<html><head></head><body><div id='d'><span id='s'></span></div></body></html>";
+        final HtmlPage page = loadPage(html);
+
+        final DomElement div = page.getElementById("d");
+        final DomElement span = page.getElementById("s");
+        assertEquals(Node.DOCUMENT_POSITION_CONTAINED_BY | Node.DOCUMENT_POSITION_FOLLOWING,
+                div.compareDocumentPosition(span));
+
+        // always insert directly behind the first child to use up the gaps between the labels
+        final List<DomNode> expected = new ArrayList<>();
+        expected.add(span);
+        for (int i = 0; i < 100; i++) {
+            final DomElement inserted = page.createElement("p");
+            if (i % 2 == 0) {
+                inserted.appendChild(page.createElement("b"));
+            }
+            div.insertBefore(inserted, span.getNextSibling());
+            expected.add(1, inserted);
+        }
+
+        for (int i = 0; i < expected.size(); i++) {
+            final DomNode node = expected.get(i);
+            assertEquals(i, node.getIndex());
+            for (int j = i + 1; j < expected.size(); j++) {
+                assertEquals(Node.DOCUMENT_POSITION_FOLLOWING, node.compareDocumentPosition(expected.get(j)));
+                assertEquals(Node.DOCUMENT_POSITION_PRECEDING, expected.get(j).compareDocumentPosition(node));
+            }
+        }
+
+        final DomNode last = expected.get(expected.size() - 1);
+        assertEquals(Node.DOCUMENT_POSITION_CONTAINS | Node.DOCUMENT_POSITION_PRECEDING,
+                last.getFirstChild().compareDocumentPosition(last));
+        assertEquals(Node.DOCUMENT_POSITION_CONTAINS, last.compareDocumentPosition(page));
+
+        last.remove();
+        assertTrue((last.compareDocumentPosition(span) & Node.DOCUMENT_POSITION_DISCONNECTED) != 0);
+        assertEquals(Node.DOCUMENT_POSITION_CONTAINS, last.getFirstChild().compareDocumentPosition(last));
+        assertEquals(expected.size() - 2, expected.get(expected.size() - 2).getIndex());
+    }
+
+    /**
+     * Comparing the position of nodes in a document with many siblings does not walk the siblings.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void compareDocumentPositionPerformance() throws Exception {
+        final StringBuilder html = new StringBuilder("<html><head></head><body>\n");
+        html.append("<div id='first'></div>\n");
+        for (int i = 0; i < 20_000; i++) {
+            html.append("<div></div>\n");
+        }
+        html.append("<div id='last'></div>\n");
+        html.append("</body></html>");
+
+        final HtmlPage page = loadPage(html.toString());
+        final DomElement first = page.getElementById("first");
+        final DomElement last = page.getElementById("last");
+
+        final int index = last.getIndex();
+
+        final long time = System.currentTimeMillis();
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals(Node.DOCUMENT_POSITION_PRECEDING, last.compareDocumentPosition(first));
+            assertEquals(index, last.getIndex());
+        }
+
+        final long runTime = System.currentTimeMillis() - time;
+        assertTrue("compareDocumentPosition() took too much time", runTime < 1_000);
+    }
 }
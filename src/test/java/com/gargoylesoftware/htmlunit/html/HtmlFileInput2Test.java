@@ -45,6 +45,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.HttpMultipartMode;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
@@ -264,16 +265,13 @@ public class HtmlFileInput2Test extends WebServerTestCase {
             throws NoSuchMethodException, IllegalAccessException,
             InvocationTargetException {
         final Method makeHttpMethod = HttpWebConnection.class.getDeclaredMethod("makeHttpMethod",
-                WebRequest.class, HttpClientBuilder.class);
+                WebRequest.class, HttpClientContext.class);
         makeHttpMethod.setAccessible(true);
 
         final HttpWebConnection con = new HttpWebConnection(client);
 
-        final Method getHttpClientBuilderMethod = HttpWebConnection.class.getDeclaredMethod("getHttpClientBuilder");
-        getHttpClientBuilderMethod.setAccessible(true);
-        final HttpClientBuilder builder = (HttpClientBuilder) getHttpClientBuilderMethod.invoke(con);
-
-        final HttpPost httpPost = (HttpPost) makeHttpMethod.invoke(con, webConnection.getLastWebRequest(), builder);
+        final HttpPost httpPost = (HttpPost) makeHttpMethod.invoke(con, webConnection.getLastWebRequest(),
+                HttpClientContext.create());
         final HttpEntity httpEntity = httpPost.getEntity();
         return httpEntity;
     }
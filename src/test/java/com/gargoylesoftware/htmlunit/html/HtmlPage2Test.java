@@ -22,6 +22,7 @@ import java.io.FileInputStream;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -46,6 +47,7 @@ import com.gargoylesoftware.htmlunit.util.NameValuePair;
  *
  * @author Ahmed Ashour
  * @author Marc Guillemot
+ * @author <a href="mailto:agent@local">agent</a>
  */
 @RunWith(BrowserRunner.class)
 public class HtmlPage2Test extends SimpleWebTestCase {
@@ -550,4 +552,91 @@ public class HtmlPage2Test extends SimpleWebTestCase {
             assertTrue(file.delete());
         }
     }
+
+    /**
+     * The lists by tag name are still correct after adding, moving and removing elements.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void getElementsByTagNameAfterChanges() throws Exception {
+        final String html = "<html><head></head>\n"
+            + "<body>\n"
+            + "  <div id='d1'><b id='b1'></b></div>\n"
+            + "  <div id='d2'><B id='b2'></B></div>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(html);
+        assertEquals(2, page.getElementsByTagName("b").size());
+        assertEquals(2, page.getDocumentElement().getElementsByTagName("B").size());
+
+        final DomElement b3 = page.createElement("b");
+        b3.setAttribute("id", "b3");
+        page.getHtmlElementById("d1").insertBefore(b3, page.getHtmlElementById("b1"));
+        assertEquals("b3 b1 b2", ids(page.getElementsByTagName("b")));
+
+        page.getHtmlElementById("d2").appendChild(page.getHtmlElementById("b1"));
+        assertEquals("b3 b2 b1", ids(page.getElementsByTagName("b")));
+
+        page.getHtmlElementById("d2").remove();
+        assertEquals("b3", ids(page.getElementsByTagName("b")));
+        assertEquals("b3", ids(page.getDocumentElement().getElementsByTagName("b")));
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        page.getWebClient().setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+        page.executeJavaScript("var b = document.createElement('b'); b.id = 'b4';"
+                + "document.body.appendChild(b);"
+                + "alert(document.getElementsByTagName('B').length);"
+                + "alert(document.documentElement.getElementsByTagName('b')[1].id);"
+                + "alert(document.getElementsByTagName('html').length);"
+                + "alert(document.documentElement.getElementsByTagName('html').length);");
+        assertEquals(Arrays.asList("2", "b4", "1", "0"), collectedAlerts);
+    }
+
+    private static String ids(final List<? extends DomElement> elements) {
+        final StringBuilder builder = new StringBuilder();
+        for (final DomElement element : elements) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(element.getId());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Looking up the elements of a tag name does not walk the whole document again
+     * if other elements are added.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void getElementsByTagNamePerformance() throws Exception {
+        final StringBuilder html = new StringBuilder("<html><head></head><body>\n");
+        for (int i = 0; i < 50_000; i++) {
+            html.append("<div>");
+            if (i % 5_000 == 0) {
+                html.append("<b></b>");
+            }
+            html.append("</div>\n");
+        }
+        html.append("</body></html>");
+
+        final HtmlPage page = loadPage(html.toString());
+        final HtmlElement body = page.getBody();
+
+        final long time = System.currentTimeMillis();
+        for (int i = 0; i < 1_000; i++) {
+            body.appendChild(page.createElement("span"));
+            assertEquals(10, page.getElementsByTagName("b").size());
+        }
+
+        // the added elements have the requested name and are inserted in the middle
+        final DomNode middle = body.getChildNodes().get(body.getChildNodes().size() / 2);
+        for (int i = 0; i < 1_000; i++) {
+            body.insertBefore(page.createElement("b"), middle);
+            assertEquals(11 + i, page.getElementsByTagName("b").size());
+        }
+
+        final long runTime = System.currentTimeMillis() - time;
+        assertTrue("getElementsByTagName() took too much time", runTime < 1_000);
+    }
 }
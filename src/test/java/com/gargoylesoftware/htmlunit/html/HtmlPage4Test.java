@@ -18,6 +18,7 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.file.Files;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
@@ -27,6 +28,7 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -144,22 +146,24 @@ public class HtmlPage4Test extends WebServerTestCase {
         BigJavaScriptServlet2.CONTENT_ = javaScript.toString();
         BigJavaScriptServlet3.CONTENT_ = css.toString();
 
-        final int initialTempFiles = getTempFiles();
+        final File tempDirectory = Files.createTempDirectory("htmlunit-test").toFile();
         final Map<String, Class<? extends Servlet>> map = new HashMap<>();
         map.put("/one.html", BigJavaScriptServlet1.class);
         map.put("/two.js", BigJavaScriptServlet2.class);
         map.put("/three.css", BigJavaScriptServlet3.class);
         startWebServer(".", null, map);
         try (WebClient client = getWebClient()) {
+            client.getOptions().setTempFileDirectory(tempDirectory);
             final CollectingAlertHandler alertHandler = new CollectingAlertHandler();
             client.setAlertHandler(alertHandler);
             final HtmlPage page = client.getPage(URL_FIRST + "one.html");
             ((HTMLBodyElement) page.getBody().getScriptableObject()).getCurrentStyle();
 
             assertEquals(getExpectedAlerts(), alertHandler.getCollectedAlerts());
-            assertEquals(initialTempFiles + 1, getTempFiles());
+            assertEquals(1, getTempFiles(tempDirectory));
         }
-        assertEquals(initialTempFiles, getTempFiles());
+        assertEquals(0, getTempFiles(tempDirectory));
+        FileUtils.deleteQuietly(tempDirectory);
     }
 
     /**
@@ -195,9 +199,8 @@ public class HtmlPage4Test extends WebServerTestCase {
         }
     }
 
-    private static int getTempFiles() {
-        final File file = new File(System.getProperty("java.io.tmpdir"));
-        final String[] list = file.list(new FilenameFilter() {
+    private static int getTempFiles(final File directory) {
+        final String[] list = directory.list(new FilenameFilter() {
             @Override
             public boolean accept(final File dir, final String name) {
                 return name.startsWith("htmlunit");
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.html;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.CollectingAlertHandler;
+import com.gargoylesoftware.htmlunit.MockWebConnection;
+import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.util.MimeType;
+
+/**
+ * Tests for {@link SubresourcePrefetcher}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@RunWith(BrowserRunner.class)
+public class SubresourcePrefetcherTest extends SimpleWebTestCase {
+
+    /**
+     * The scripts are downloaded in parallel but still executed in document order.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void scriptsExecutedInOrder() throws Exception {
+        final String html = "<html><head>\n"
+            + "<script src='one.js'></script>\n"
+            + "<!-- <script src='commented.js'></script> -->\n"
+            + "<script src='two.js'></script>\n"
+            + "<script>alert('inline');</script>\n"
+            + "<script src='one.js'></script>\n"
+            + "</head><body></body></html>";
+
+        final WebClient client = getWebClientWithMockWebConnection();
+        client.getOptions().setPrefetchThreads(2);
+        final List<String> collectedAlerts = new ArrayList<>();
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+        final MockWebConnection conn = getMockWebConnection();
+        conn.setResponse(URL_FIRST, html);
+        conn.setResponse(new URL(URL_FIRST, "one.js"), "alert('one');", MimeType.APPLICATION_JAVASCRIPT);
+        conn.setResponse(new URL(URL_FIRST, "two.js"), "alert('two');", MimeType.APPLICATION_JAVASCRIPT);
+
+        client.getPage(URL_FIRST);
+        assertEquals(new String[] {"one", "two", "inline", "one"}, collectedAlerts);
+
+        final List<String> requested = conn.getRequestedUrls(URL_FIRST);
+        assertFalse(requested.contains("commented.js"));
+        assertEquals(1, Collections.frequency(requested, "two.js"));
+        assertNotNull(client.getPrefetchExecutor());
+    }
+
+    /**
+     * Without threads configured, nothing is prefetched.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void disabledByDefault() throws Exception {
+        final String html = "<html><head>\n"
+            + "<script>var x = '<script src=\"never.js\"></' + 'script>';</script>\n"
+            + "</head><body></body></html>";
+
+        final WebClient client = getWebClientWithMockWebConnection();
+        final MockWebConnection conn = getMockWebConnection();
+        conn.setResponse(URL_FIRST, html);
+        conn.setDefaultResponse("", MimeType.APPLICATION_JAVASCRIPT);
+
+        client.getPage(URL_FIRST);
+        assertNull(client.getPrefetchExecutor());
+        assertEquals(1, conn.getRequestCount());
+    }
+}
@@ -268,4 +268,46 @@ public class HtmlUnitXPathTest extends SimpleWebTestCase {
         div.setAttribute("class", "design");
         assertSame(div, page.getFirstByXPath("//*[@class = 'design']"));
     }
+
+    /**
+     * Expressions evaluated without Xalan have to behave the same.
+     * @throws Exception if test fails
+     */
+    @Test
+    public void simpleExpressions() throws Exception {
+        final String content = "<html><head><title>foo</title></head>\n"
+            + "<body>\n"
+            + "<div id='d1' class='a'><div id='d2'></div><span id='s1' class='a'></span><div id='d3'></div></div>\n"
+            + "<div id='d4'><div id='d5'></div></div>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(content);
+
+        assertEquals(new String[] {"d1", "d2", "d3", "d4", "d5"}, ids(page.getByXPath("//div")));
+        assertEquals(new String[] {"d1", "d2", "d3", "d4", "d5"}, ids(page.getByXPath("//DIV")));
+        assertEquals(new String[] {"d1", "s1"}, ids(page.getByXPath("//*[@class='a']")));
+        assertEquals(new String[] {"d1", "s1"}, ids(page.getByXPath("//*[@class = \"a\"]")));
+        assertEquals(new String[] {"s1"}, ids(page.getByXPath("//span[@class='a']")));
+        assertEquals(new String[] {"d1", "d4"}, ids(page.getByXPath("/html/body/div")));
+        assertEquals(new String[] {"d4"}, ids(page.getByXPath("/html/body/div[2]")));
+        assertEquals(new String[] {"d3", "d5"}, ids(page.getByXPath("/html/body/div/div[@id!='d2']")));
+        assertEquals(new String[] {"d3"}, ids(page.getByXPath("/html/body/div/div[2]")));
+        assertEquals(new String[] {"d2"}, ids(page.getByXPath("//div[1]/div[1]")));
+        assertEquals(new String[] {}, ids(page.getByXPath("/html/body/div[3]")));
+        assertEquals(new String[] {}, ids(page.getByXPath("//*[@id='unknown']")));
+
+        final HtmlElement d4 = page.getHtmlElementById("d4");
+        assertEquals(new String[] {"d2"}, ids(d4.getByXPath("//div[@id='d2']")));
+
+        d4.setAttribute("class", "a");
+        assertEquals(new String[] {"d1", "s1", "d4"}, ids(page.getByXPath("//*[@class='a']")));
+    }
+
+    private static List<String> ids(final List<?> elements) {
+        final List<String> ids = new ArrayList<>();
+        for (final Object element : elements) {
+            ids.add(((HtmlElement) element).getId());
+        }
+        return ids;
+    }
 }
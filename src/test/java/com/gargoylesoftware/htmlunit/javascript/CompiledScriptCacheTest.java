@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript;
+
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.ScriptException;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+
+/**
+ * Tests for {@link CompiledScriptCache}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@RunWith(BrowserRunner.class)
+public class CompiledScriptCacheTest extends SimpleWebTestCase {
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void inlineScriptsAndEventHandlers() throws Exception {
+        final String html = "<html><head>\n"
+                + "<script>\n"
+                + "  var count = 0;\n"
+                + "</script>\n"
+                + "</head>\n"
+                + "<body>\n"
+                + "  <button id='b' onclick='count++; alert(this.id + count)'>click</button>\n"
+                + "</body></html>";
+
+        final CompiledScriptCache cache = CompiledScriptCache.getInstance();
+        cache.clear();
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        final HtmlPage page1 = loadPage(html, collectedAlerts);
+        page1.getHtmlElementById("b").click();
+        page1.getHtmlElementById("b").click();
+        assertEquals(0L, cache.getHitCount());
+
+        // same page in another client
+        try (WebClient client = new WebClient(getBrowserVersion())) {
+            final HtmlPage page2 = loadPage(client, html, collectedAlerts, URL_FIRST);
+            page2.getHtmlElementById("b").click();
+
+            // the inline script and the event handler
+            assertEquals(2L, cache.getHitCount());
+        }
+
+        page1.getHtmlElementById("b").click();
+        assertEquals(Arrays.asList("b1", "b2", "b1", "b3"), collectedAlerts);
+    }
+
+    /**
+     * Cached event handlers still report the element and the page in their errors.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void eventHandlerErrorsKeepTheSourceName() throws Exception {
+        final String html = "<html><head></head>\n"
+                + "<body>\n"
+                + "  <button id='b' onclick='unknown()'>click</button>\n"
+                + "</body></html>";
+
+        final CompiledScriptCache cache = CompiledScriptCache.getInstance();
+        cache.clear();
+
+        final HtmlPage page1 = loadPage(html);
+        assertSourceNameReported(page1);
+        assertEquals(0L, cache.getHitCount());
+
+        try (WebClient client = new WebClient(getBrowserVersion())) {
+            final HtmlPage page2 = loadPage(client, html, null, URL_FIRST);
+            assertSourceNameReported(page2);
+            assertEquals(1L, cache.getHitCount());
+        }
+    }
+
+    private void assertSourceNameReported(final HtmlPage page) throws Exception {
+        try {
+            page.getHtmlElementById("b").click();
+            fail("ScriptException expected");
+        }
+        catch (final ScriptException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("onclick event for HtmlButton"));
+        }
+    }
+
+    /**
+     * Browser versions with the same nickname may have different features.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void browserVersionIdentity() throws Exception {
+        final String html = "<html><head><script>var i = 0;</script></head><body></body></html>";
+
+        final CompiledScriptCache cache = CompiledScriptCache.getInstance();
+        cache.clear();
+
+        loadPage(html);
+        final BrowserVersion copy = new BrowserVersion.BrowserVersionBuilder(getBrowserVersion()).build();
+        assertEquals(getBrowserVersion().getNickname(), copy.getNickname());
+        try (WebClient client = new WebClient(copy)) {
+            loadPage(client, html, null, URL_FIRST);
+            assertEquals(0L, cache.getHitCount());
+            assertEquals(2, cache.getSize());
+        }
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void maxSourceLength() throws Exception {
+        final String script = "var i = 0;";
+        final String html = "<html><head><script>" + script + "</script></head><body></body></html>";
+
+        final CompiledScriptCache cache = CompiledScriptCache.getInstance();
+        cache.clear();
+        try {
+            cache.setMaxSourceLength(script.length() - 1);
+            loadPage(html);
+            assertEquals(0, cache.getSize());
+            assertEquals(0L, cache.getSourceLength());
+
+            cache.setMaxSourceLength(script.length());
+            loadPage(html);
+            assertEquals(1, cache.getSize());
+            assertEquals((long) script.length(), cache.getSourceLength());
+
+            cache.setMaxSourceLength(0);
+            assertEquals(0, cache.getSize());
+            assertEquals(0L, cache.getSourceLength());
+        }
+        finally {
+            cache.setMaxSourceLength(CompiledScriptCache.DEFAULT_MAX_SOURCE_LENGTH);
+        }
+    }
+}
@@ -870,6 +870,18 @@ public class JavaScriptEngineTest extends SimpleWebTestCase {
      */
     @Test
     public void timeout() throws Exception {
+        timeout(false);
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void timeoutCompiled() throws Exception {
+        timeout(true);
+    }
+
+    private void timeout(final boolean compile) throws Exception {
         final WebClient client = getWebClient();
         final long timeout = 2000;
         final long oldTimeout = client.getJavaScriptTimeout();
@@ -877,6 +889,7 @@ public class JavaScriptEngineTest extends SimpleWebTestCase {
 
         try {
             client.getOptions().setThrowExceptionOnScriptError(false);
+            client.getOptions().setCompileJavaScript(compile);
 
             final String content = "<html><body><script>while(1) {}</script></body></html>";
             final MockWebConnection webConnection = new MockWebConnection();
@@ -907,9 +920,32 @@ public class JavaScriptEngineTest extends SimpleWebTestCase {
         }
         finally {
             client.setJavaScriptTimeout(oldTimeout);
+            client.getOptions().setCompileJavaScript(false);
         }
     }
 
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void compiled() throws Exception {
+        final String html = "<html><head><script>\n"
+            + "  function fib(n) { return n < 2 ? n : fib(n - 1) + fib(n - 2); }\n"
+            + "  function test() {\n"
+            + "    alert(fib(20));\n"
+            + "    try { null.foo; } catch(e) { alert(e instanceof TypeError); }\n"
+            + "    alert(document.body.tagName);\n"
+            + "  }\n"
+            + "</script></head>\n"
+            + "<body onload='test()'></body></html>";
+
+        getWebClient().getOptions().setCompileJavaScript(true);
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        loadPage(html, collectedAlerts);
+        assertEquals(new String[] {"6765", "true", "BODY"}, collectedAlerts);
+    }
+
     private static final class CountingJavaScriptEngine extends JavaScriptEngine {
         private int scriptExecutionCount_ = 0;
         private int scriptCallCount_ = 0;
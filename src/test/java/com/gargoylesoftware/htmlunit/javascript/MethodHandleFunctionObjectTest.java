@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.BrowserRunner.Alerts;
+import com.gargoylesoftware.htmlunit.WebDriverTestCase;
+
+/**
+ * Tests for {@link MethodHandleFunctionObject}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@RunWith(BrowserRunner.class)
+public class MethodHandleFunctionObjectTest extends WebDriverTestCase {
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"DIV", "undefined", "1", "true", "undefined", "2", "8", "true"})
+    public void call() throws Exception {
+        final String html = "<html><head>\n"
+                + "<script>\n"
+                + "  function test() {\n"
+                + "    var div = document.createElement('div');\n"
+                + "    alert(div.tagName);\n"
+                + "    alert(div.setAttribute('a', 1));\n"
+                + "    alert(div.getAttribute('a'));\n"
+                + "    alert(div.hasAttribute('a'));\n"
+
+                + "    var e = document.createEvent('MouseEvents');\n"
+                + "    alert(e.initMouseEvent('click', true, true, window, 1, 2, 3, 4, 5,"
+                +                " false, false, false, false, 0, null));\n"
+                + "    alert(e.screenX);\n"
+                + "    alert(e.clientY + e.screenY);\n"
+
+                + "    var getAttribute = div.getAttribute;\n"
+                + "    try {\n"
+                + "      getAttribute.call({}, 'a');\n"
+                + "    } catch(ex) { alert(ex instanceof TypeError); }\n"
+                + "  }\n"
+                + "</script>\n"
+                + "</head>\n"
+                + "<body onload='test()'>\n"
+                + "</body></html>";
+
+        loadPageWithAlerts2(html);
+    }
+}
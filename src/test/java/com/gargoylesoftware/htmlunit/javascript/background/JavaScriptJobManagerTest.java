@@ -216,4 +216,35 @@ public class JavaScriptJobManagerTest extends SimpleWebTestCase {
 
         assertEquals("No new alerts should have happened", finalValue, collectedAlerts.size());
     }
+
+    /**
+     * The executor does not poll; a new job has to wake up the idle event loop thread.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void newJobWakesUpIdleExecutor() throws Exception {
+        final String content = "<html>\n"
+            + "<head>\n"
+            + "  <title>test</title>\n"
+            + "</head>\n"
+            + "<body>\n"
+            + "</body>\n"
+            + "</html>";
+
+        final List<String> collectedAlerts = Collections.synchronizedList(new ArrayList<String>());
+        final HtmlPage page = loadPage(content, collectedAlerts);
+        final JavaScriptJobManager jobManager = page.getEnclosingWindow().getJobManager();
+        assertNotNull(jobManager);
+
+        // give the event loop thread time to fall asleep
+        Thread.sleep(100);
+
+        startTimedTest();
+        page.executeJavaScript("setTimeout(function() { alert('done'); }, 0);");
+        jobManager.waitForJobs(DEFAULT_WAIT_TIME);
+        assertEquals(Collections.singletonList("done"), collectedAlerts);
+
+        // the idle wait of the executor is one second
+        assertMaxTestRunTime(500);
+    }
 }
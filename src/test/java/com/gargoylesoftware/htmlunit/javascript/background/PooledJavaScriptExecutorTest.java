@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.background;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.gargoylesoftware.htmlunit.CollectingAlertHandler;
+import com.gargoylesoftware.htmlunit.MockWebConnection;
+import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.WebClient;
+
+/**
+ * Tests for {@link PooledJavaScriptExecutor}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class PooledJavaScriptExecutorTest extends SimpleWebTestCase {
+
+    /**
+     * Two web clients share one pool thread.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void sharedPool() throws Exception {
+        final String html = "<html><head><script>\n"
+            + "  var count = 0;\n"
+            + "  function test() {\n"
+            + "    var id = setInterval(function() {\n"
+            + "      alert(++count);\n"
+            + "      if (count == 3) { clearInterval(id); }\n"
+            + "    }, 10);\n"
+            + "  }\n"
+            + "</script></head>\n"
+            + "<body onload='test()'></body></html>";
+
+        final BackgroundJavaScriptFactory original = BackgroundJavaScriptFactory.theFactory();
+        final PooledBackgroundJavaScriptFactory factory = new PooledBackgroundJavaScriptFactory(1);
+        BackgroundJavaScriptFactory.setFactory(factory);
+        try (WebClient client1 = new WebClient(); WebClient client2 = new WebClient()) {
+            final List<String> alerts1 = Collections.synchronizedList(new ArrayList<String>());
+            final List<String> alerts2 = Collections.synchronizedList(new ArrayList<String>());
+
+            final MockWebConnection conn1 = new MockWebConnection();
+            conn1.setResponse(URL_FIRST, html);
+            client1.setWebConnection(conn1);
+            client1.setAlertHandler(new CollectingAlertHandler(alerts1));
+
+            final MockWebConnection conn2 = new MockWebConnection();
+            conn2.setResponse(URL_FIRST, html);
+            client2.setWebConnection(conn2);
+            client2.setAlertHandler(new CollectingAlertHandler(alerts2));
+
+            client1.getPage(URL_FIRST);
+            client2.getPage(URL_FIRST);
+
+            assertEquals(0, client1.waitForBackgroundJavaScript(DEFAULT_WAIT_TIME));
+            assertEquals(0, client2.waitForBackgroundJavaScript(DEFAULT_WAIT_TIME));
+
+            assertEquals(new String[] {"1", "2", "3"}, alerts1);
+            assertEquals(new String[] {"1", "2", "3"}, alerts2);
+        }
+        finally {
+            BackgroundJavaScriptFactory.setFactory(original);
+            factory.shutdown();
+        }
+    }
+}
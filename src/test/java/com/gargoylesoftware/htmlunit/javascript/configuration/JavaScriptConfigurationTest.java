@@ -44,8 +44,11 @@ import com.gargoylesoftware.htmlunit.BrowserVersion;
 import com.gargoylesoftware.htmlunit.MockWebConnection;
 import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
 import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlDivision;
+import com.gargoylesoftware.htmlunit.javascript.HtmlUnitScriptable;
 import com.gargoylesoftware.htmlunit.javascript.JavaScriptEngine;
 import com.gargoylesoftware.htmlunit.javascript.SimpleScriptable;
+import com.gargoylesoftware.htmlunit.javascript.host.html.HTMLDivElement;
 import com.gargoylesoftware.htmlunit.javascript.host.worker.DedicatedWorkerGlobalScope;
 
 /**
@@ -293,6 +296,21 @@ public class JavaScriptConfigurationTest extends SimpleWebTestCase {
         }
     }
 
+    /**
+     * The resolved mapping has to be the same as the direct one.
+     */
+    @Test
+    public void domJavaScriptClass() {
+        final JavaScriptConfiguration config = JavaScriptConfiguration.getInstance(CHROME);
+        for (final Map.Entry<Class<?>, Class<? extends HtmlUnitScriptable>> entry
+                : config.getDomJavaScriptMapping().entrySet()) {
+            assertSame(entry.getValue(), config.getDomJavaScriptClass(entry.getKey()));
+        }
+        assertSame(HTMLDivElement.class, config.getDomJavaScriptClass(HtmlDivision.class));
+        // like the walk of makeScriptableFor(), an unmapped class gets the mapping of Object
+        assertSame(config.getDomJavaScriptMapping().get(Object.class), config.getDomJavaScriptClass(String.class));
+    }
+
     /**
      * See issue 1890.
      *
@@ -19,11 +19,15 @@ import static java.nio.charset.StandardCharsets.UTF_16LE;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
 import org.eclipse.jetty.websocket.server.WebSocketHandler;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeResponse;
@@ -595,6 +599,76 @@ public class WebSocketTest extends WebDriverTestCase {
         }
     }
 
+    /**
+     * All WebSockets of a web client share one client, stopped when the web client is closed.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void sharedClient() throws Exception {
+        final WebClient webClient = new WebClient(getBrowserVersion());
+        final WebSocketClient client = webClient.getWebSocketClient();
+        assertTrue(client.isStarted());
+        assertSame(client, webClient.getWebSocketClient());
+
+        webClient.close();
+        assertTrue(client.isStopped());
+    }
+
+    /**
+     * The WebSockets of a page share the client of the web client; their events are dispatched
+     * by the job manager of the window, not by the threads of the client.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void sharedClientEventsDispatchedByJobManager() throws Exception {
+        startWebServer("src/test/resources/com/gargoylesoftware/htmlunit/javascript/host",
+                null, null, new EventsWebSocketHandler());
+        try (WebClient webClient = new WebClient(getBrowserVersion())) {
+            final List<WebSocket> webSockets = new CopyOnWriteArrayList<>();
+            final Set<Thread> clientThreads = new CopyOnWriteArraySet<>();
+            webClient.getInternals().addListener(new WebClientInternals.Listener() {
+                @Override
+                public void webSocketCreated(final WebSocket webSocket) {
+                    webSockets.add(webSocket);
+                    webSocket.setWebSocketListener(new WebSocketAdapter() {
+                        @Override
+                        public void onWebSocketText(final String message) {
+                            clientThreads.add(Thread.currentThread());
+                        }
+                    });
+                }
+            });
+
+            final List<String> alerts = new CopyOnWriteArrayList<>();
+            final Set<Thread> alertThreads = new CopyOnWriteArraySet<>();
+            webClient.setAlertHandler((page, message) -> {
+                alerts.add(message);
+                alertThreads.add(Thread.currentThread());
+            });
+
+            webClient.getPage(URL_FIRST + "WebSocketTest_shared.html");
+
+            final long maxWait = System.currentTimeMillis() + DEFAULT_WAIT_TIME;
+            while (alerts.size() < 2 && System.currentTimeMillis() < maxWait) {
+                Thread.sleep(30);
+            }
+            assertEquals(Arrays.asList("server_text", "server_text"), alerts);
+
+            assertEquals(2, webSockets.size());
+            assertSame(webClient.getWebSocketClient(), webSockets.get(0).getWebSocketClient());
+            assertSame(webClient.getWebSocketClient(), webSockets.get(1).getWebSocketClient());
+
+            assertFalse(clientThreads.isEmpty());
+            for (final Thread thread : alertThreads) {
+                assertFalse(clientThreads.contains(thread));
+                assertTrue(thread.getName(), thread.getName().startsWith("JS executor"));
+            }
+        }
+        finally {
+            stopWebServers();
+        }
+    }
+
     /**
      * @throws Exception if the test fails
      */
@@ -714,6 +714,74 @@ public class CSSSelectorTest extends WebDriverTestCase {
         loadPageWithAlerts2(html);
     }
 
+    /**
+     * @throws Exception if an error occurs
+     */
+    @Test
+    @Alerts({"2", "d2", "null", "d1", "1", "s1", "null", "null", "d3"})
+    public void idSelector() throws Exception {
+        final String html
+            = HtmlPageTest.STANDARDS_MODE_PREFIX_
+            + "<html><head><script>\n"
+            + "function test() {\n"
+            + "  alert(document.querySelectorAll('#foo').length);\n"
+            + "  alert(document.querySelector('#foo').className);\n"
+            + "  var d1 = document.getElementById('d1');\n"
+            + "  alert(d1.querySelector('#d1'));\n"
+            + "  alert(d1.parentNode.querySelector('#d1').id);\n"
+            + "  alert(d1.querySelectorAll('#foo').length);\n"
+            + "  alert(d1.querySelector('#foo').className);\n"
+
+            + "  d1.querySelector('#foo').id = 'bar';\n"
+            + "  alert(d1.querySelector('#foo'));\n"
+
+            + "  var div = document.createElement('div');\n"
+            + "  div.innerHTML = '<span id=\"d3\"></span>';\n"
+            + "  alert(document.querySelector('#d3'));\n"
+            + "  alert(div.querySelector('#d3').id);\n"
+            + "}\n"
+            + "</script></head>\n"
+            + "<body onload='test()'>\n"
+            + "  <div id='foo' class='d2'></div>\n"
+            + "  <div id='d1'><span id='foo' class='s1'></span></div>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts2(html);
+    }
+
+    /**
+     * @throws Exception if an error occurs
+     */
+    @Test
+    @Alerts({"[object SVGCircleElement]", "1", "null", "[object SVGRectElement]", "null", "0"})
+    public void idSelectorSvg() throws Exception {
+        final String html
+            = HtmlPageTest.STANDARDS_MODE_PREFIX_
+            + "<html><head><script>\n"
+            + "function test() {\n"
+            + "  var c = document.getElementById('c1');\n"
+            + "  c.setAttribute('id', 'c2');\n"
+            + "  alert(document.querySelector('#c2'));\n"
+            + "  alert(document.querySelectorAll('#c2').length);\n"
+            + "  alert(document.querySelector('#c1'));\n"
+
+            + "  var r = document.createElementNS('http://www.w3.org/2000/svg', 'rect');\n"
+            + "  c.parentNode.appendChild(r);\n"
+            + "  r.id = 'r1';\n"
+            + "  alert(document.querySelector('#r1'));\n"
+
+            + "  c.parentNode.removeChild(c);\n"
+            + "  alert(document.querySelector('#c2'));\n"
+            + "  alert(document.querySelectorAll('#c2').length);\n"
+            + "}\n"
+            + "</script></head>\n"
+            + "<body onload='test()'>\n"
+            + "  <svg xmlns='http://www.w3.org/2000/svg'><circle id='c1'/></svg>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts2(html);
+    }
+
     /**
      * @throws Exception if an error occurs
      */
@@ -1748,4 +1748,90 @@ public class CSSStyleSheetTest extends WebDriverTestCase {
         final WebDriver webDriver = loadPage2(html);
         assertFalse(webDriver.findElement(By.id("di")).isDisplayed());
     }
+
+    /**
+     * Rules with the same specificity are applied in the order of the stylesheet,
+     * even if they are indexed by different keys.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"rgb(0, 128, 0)", "rgb(255, 0, 0)"})
+    public void indexOrder() throws Exception {
+        final String html = "<html><head>\n"
+                + "<style>\n"
+                + "  .cls { color: red; }\n"
+                + "  [title] { color: green; }\n"
+                + "  span { color: green; }\n"
+                + "  * span { color: red; }\n"
+                + "</style>\n"
+                + "<script>\n"
+                + "  function test() {\n"
+                + "    alert(window.getComputedStyle(document.getElementById('d1'), null).color);\n"
+                + "    alert(window.getComputedStyle(document.getElementById('s1'), null).color);\n"
+                + "  }\n"
+                + "</script>\n"
+                + "</head>\n"
+                + "<body onload='test()'>\n"
+                + "  <div id='d1' class='cls' title='x'></div>\n"
+                + "  <span id='s1'></span>\n"
+                + "</body></html>";
+
+        loadPageWithAlerts2(html);
+    }
+
+    /**
+     * Selectors depending on the ancestors.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"rgb(255, 0, 0)", "rgb(0, 0, 0)", "rgb(0, 128, 0)", "rgb(0, 0, 255)"})
+    public void indexAncestors() throws Exception {
+        final String html = "<html><head>\n"
+                + "<style>\n"
+                + "  #outer .middle p { color: red; }\n"
+                + "  div.other > p { color: green; }\n"
+                + "  .sib + div p { color: blue; }\n"
+                + "</style>\n"
+                + "<script>\n"
+                + "  function test() {\n"
+                + "    alert(window.getComputedStyle(document.getElementById('p1'), null).color);\n"
+                + "    alert(window.getComputedStyle(document.getElementById('p2'), null).color);\n"
+                + "    alert(window.getComputedStyle(document.getElementById('p3'), null).color);\n"
+                + "    alert(window.getComputedStyle(document.getElementById('p4'), null).color);\n"
+                + "  }\n"
+                + "</script>\n"
+                + "</head>\n"
+                + "<body onload='test()'>\n"
+                + "  <div id='outer'><div class='middle'><p id='p1'>p1</p></div></div>\n"
+                + "  <div class='middle'><p id='p2'>p2</p></div>\n"
+                + "  <div class='other'><p id='p3'>p3</p></div>\n"
+                + "  <span class='sib'></span><div><p id='p4'>p4</p></div>\n"
+                + "</body></html>";
+
+        loadPageWithAlerts2(html);
+    }
+
+    /**
+     * Descendant selectors for svg elements.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts("rgb(255, 0, 0)")
+    public void indexAncestorsSvg() throws Exception {
+        final String html = "<html><head>\n"
+                + "<style>\n"
+                + "  svg circle { color: red; }\n"
+                + "</style>\n"
+                + "<script>\n"
+                + "  function test() {\n"
+                + "    alert(window.getComputedStyle(document.getElementById('c'), null).color);\n"
+                + "  }\n"
+                + "</script>\n"
+                + "</head>\n"
+                + "<body onload='test()'>\n"
+                + "  <svg><circle id='c'/></svg>\n"
+                + "</body></html>";
+
+        loadPageWithAlerts2(html);
+    }
 }
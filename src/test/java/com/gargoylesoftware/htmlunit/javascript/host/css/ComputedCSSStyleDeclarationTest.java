@@ -2350,4 +2350,38 @@ public class ComputedCSSStyleDeclarationTest extends WebDriverTestCase {
             + "</body></html>";
         loadPageWithAlerts2(html);
     }
+
+    /**
+     * The cached styles of the siblings have to be updated if a sibling combinator is used.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    @Alerts({"rgb(0, 0, 0)", "rgb(0, 0, 0)", "rgb(255, 0, 0)", "rgb(255, 0, 0)", "rgb(0, 0, 0)"})
+    public void cacheSiblingCombinator() throws Exception {
+        final String html = "<html><head>\n"
+            + "<style>\n"
+            + "  .marker + p span { color: red; }\n"
+            + "  p[data-x='y'] { color: red; }\n"
+            + "</style>\n"
+            + "</head><body>\n"
+            + "<div id='first'></div>\n"
+            + "<p id='second'><span id='tester'>tester</span></p>\n"
+            + "<script>\n"
+            + "  var first = document.getElementById('first');\n"
+            + "  var second = document.getElementById('second');\n"
+            + "  var tester = document.getElementById('tester');\n"
+            + "  alert(window.getComputedStyle(tester, null).color);\n"
+            + "  first.setAttribute('title', 'unused');\n"
+            + "  alert(window.getComputedStyle(tester, null).color);\n"
+            + "  first.className = 'marker';\n"
+            + "  alert(window.getComputedStyle(tester, null).color);\n"
+            + "  first.className = '';\n"
+            + "  second.setAttribute('data-x', 'y');\n"
+            + "  alert(window.getComputedStyle(second, null).color);\n"
+            + "  second.removeAttribute('data-x');\n"
+            + "  alert(window.getComputedStyle(second, null).color);\n"
+            + "</script>\n"
+            + "</body></html>";
+        loadPageWithAlerts2(html);
+    }
 }
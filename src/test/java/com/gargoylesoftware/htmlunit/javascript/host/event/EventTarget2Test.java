@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.host.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gargoylesoftware.htmlunit.BrowserRunner;
+import com.gargoylesoftware.htmlunit.SimpleWebTestCase;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+
+/**
+ * Tests for {@link EventTarget}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@RunWith(BrowserRunner.class)
+public class EventTarget2Test extends SimpleWebTestCase {
+
+    /**
+     * Without any listener the JavaScript objects of the parents are not created.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void noListeners() throws Exception {
+        final String html = "<html><head></head>\n"
+                + "<body>\n"
+                + "  <div id='outer'><div id='middle'><span id='inner'>click</span></div></div>\n"
+                + "</body></html>";
+
+        final HtmlPage page = loadPage(html);
+        page.getHtmlElementById("inner").click();
+
+        assertNull(page.getHtmlElementById("middle").getScriptableObjectOrNull());
+    }
+
+    /**
+     * Handlers defined by attributes of parents without a JavaScript object are still called.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void handlerAttributeOfParent() throws Exception {
+        final String html = "<html><head></head>\n"
+                + "<body>\n"
+                + "  <div id='outer' onClick='alert(this.id)'>"
+                + "<div id='middle'><span id='inner'>click</span></div></div>\n"
+                + "</body></html>";
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        final HtmlPage page = loadPage(html, collectedAlerts);
+        page.getHtmlElementById("inner").click();
+
+        assertEquals(Arrays.asList("outer"), collectedAlerts);
+    }
+
+    /**
+     * Listeners added later are called.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void listenerAddedLater() throws Exception {
+        final String html = "<html><head>\n"
+                + "<script>\n"
+                + "  function register() {\n"
+                + "    document.addEventListener('click', function(e) { alert(e.target.id); });\n"
+                + "  }\n"
+                + "</script>\n"
+                + "</head>\n"
+                + "<body>\n"
+                + "  <div id='outer'><span id='inner'>click</span></div>\n"
+                + "</body></html>";
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        final HtmlPage page = loadPage(html, collectedAlerts);
+        page.getHtmlElementById("inner").click();
+        assertTrue(collectedAlerts.isEmpty());
+
+        page.executeJavaScript("register()");
+        page.getHtmlElementById("inner").click();
+        assertEquals(Arrays.asList("inner"), collectedAlerts);
+    }
+}
@@ -861,4 +861,39 @@ public class HTMLCollectionTest extends WebDriverTestCase {
 
         loadPageWithAlerts2(html);
     }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"2", "3", "1", "2", "0", "1"})
+    public void liveAfterChangesOfDescendants() throws Exception {
+        final String html = "<html><head><script>\n"
+            + "  function test() {\n"
+            + "    var outer = document.getElementById('outer');\n"
+            + "    var spans = outer.getElementsByTagName('span');\n"
+            + "    var inner = document.getElementById('inner').getElementsByTagName('span');\n"
+            + "    alert(spans.length);\n"
+
+            + "    document.getElementById('deep').appendChild(document.createElement('span'));\n"
+            + "    alert(spans.length);\n"
+
+            + "    var removed = document.getElementById('inner');\n"
+            + "    outer.removeChild(removed);\n"
+            + "    alert(spans.length);\n"
+            + "    alert(inner.length);\n"
+
+            + "    removed.removeChild(removed.firstChild);\n"
+            + "    alert(inner.length);\n"
+
+            + "    outer.appendChild(removed);\n"
+            + "    alert(spans.length);\n"
+            + "  }\n"
+            + "</script></head>\n"
+            + "<body onload='test()'>\n"
+            + "  <div id='outer'><span></span><div id='inner'><span id='deep'></span></div></div>\n"
+            + "</body></html>";
+
+        loadPageWithAlerts2(html);
+    }
 }
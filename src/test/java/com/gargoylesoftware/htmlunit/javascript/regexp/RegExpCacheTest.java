@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2002-2019 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gargoylesoftware.htmlunit.javascript.regexp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link RegExpCache}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class RegExpCacheTest {
+
+    /**
+     * Test the cache statistics and the eviction.
+     */
+    @Test
+    public void cache() {
+        final RegExpCache cache = RegExpCache.getInstance();
+        final int maxSize = cache.getMaxSize();
+        try {
+            cache.clear();
+            cache.setMaxSize(2);
+
+            final Pattern pattern = cache.getPattern("a\\d", 0);
+            assertEquals("a\\d", pattern.pattern());
+            assertSame(pattern, cache.getPattern("a\\d", 0));
+            assertEquals(1, cache.getHitCount());
+            assertEquals(1, cache.getMissCount());
+
+            // other flags, the conversion is reused
+            final Pattern patternIgnoreCase = cache.getPattern("a\\d", Pattern.CASE_INSENSITIVE);
+            assertNotSame(pattern, patternIgnoreCase);
+            assertEquals(1, cache.getConversionHitCount());
+            assertEquals(1, cache.getConversionMissCount());
+
+            cache.getPattern("b", 0);
+            assertEquals(2, cache.getSize());
+            assertEquals(1, cache.getEvictionCount());
+
+            // the least recently used one was evicted
+            assertNotSame(pattern, cache.getPattern("a\\d", 0));
+        }
+        finally {
+            cache.setMaxSize(maxSize);
+            cache.clear();
+        }
+    }
+}